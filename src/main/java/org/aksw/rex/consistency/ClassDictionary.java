@@ -0,0 +1,127 @@
+package org.aksw.rex.consistency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a dense int id to each class URI, such that sets of classes can be
+ * represented as {@link BitSet}s or sorted arrays of ids.
+ * 
+ * @author Lorenz Buehmann
+ * 
+ */
+public class ClassDictionary {
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private final List<String> classes = new ArrayList<String>();
+
+	/**
+	 * 
+	 * @param cls
+	 *            URI of the class
+	 * @return the id of the class, a new id if the class was unknown
+	 */
+	public int getId(String cls) {
+		Integer id = ids.get(cls);
+		if (id == null) {
+			synchronized (classes) {
+				id = ids.get(cls);
+				if (id == null) {
+					id = classes.size();
+					classes.add(cls);
+					ids.put(cls, id);
+				}
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * 
+	 * @param id
+	 * @return the URI of the class with the given id
+	 */
+	public String getURI(int id) {
+		synchronized (classes) {
+			return classes.get(id);
+		}
+	}
+
+	/**
+	 * 
+	 * @param classes
+	 *            URIs of classes
+	 * @return the set of the ids of the classes
+	 */
+	public BitSet toBitSet(Iterable<String> classes) {
+		BitSet bits = new BitSet();
+		for (String cls : classes) {
+			bits.set(getId(cls));
+		}
+		return bits;
+	}
+
+	/**
+	 * 
+	 * @param classes
+	 *            URIs of classes
+	 * @return the sorted ids of the classes without duplicates, which unlike
+	 *         a {@link BitSet} take space in the number of classes, not in the
+	 *         highest id
+	 */
+	public int[] toIds(Collection<String> classes) {
+		int[] ids = new int[classes.size()];
+		int i = 0;
+		for (String cls : classes) {
+			ids[i++] = getId(cls);
+		}
+		Arrays.sort(ids);
+		int n = 0;
+		for (i = 0; i < ids.length; i++) {
+			if (n == 0 || ids[i] != ids[n - 1]) {
+				ids[n++] = ids[i];
+			}
+		}
+		return n == ids.length ? ids : Arrays.copyOf(ids, n);
+	}
+
+	/**
+	 * 
+	 * @param ids
+	 * @return the URIs of the classes with the given ids
+	 */
+	public List<String> toURIs(int[] ids) {
+		List<String> uris = new ArrayList<String>(ids.length);
+		for (int id : ids) {
+			uris.add(getURI(id));
+		}
+		return uris;
+	}
+
+	/**
+	 * 
+	 * @param bits
+	 * @return the URIs of the classes in the set
+	 */
+	public List<String> toURIs(BitSet bits) {
+		List<String> uris = new ArrayList<String>();
+		for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+			uris.add(getURI(id));
+		}
+		return uris;
+	}
+
+	/**
+	 * 
+	 * @return the number of classes
+	 */
+	public int size() {
+		synchronized (classes) {
+			return classes.size();
+		}
+	}
+}
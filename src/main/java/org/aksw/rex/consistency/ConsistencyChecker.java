@@ -13,7 +13,7 @@ public interface ConsistencyChecker {
 	 * Returns a subset of consistent triples by taking schema axioms into account
 	 * 
 	 * @param triples A set of triples for which a consistent subset of triples according to the given schema axiom will be returned.
-	 * @return A consistent subset of the given set of triples.
+	 * @return A consistent subset of the given set of triples, the given set is not modified.
 	 */
 	Set<Triple> getConsistentTriples(Set<Triple> triples);
 	
@@ -27,7 +27,7 @@ public interface ConsistencyChecker {
 	 * 
 	 * @param triples A set of triples for which a consistent subset of triples according to the given schema axiom will be returned.
 	 * @param axioms The schema axiom which are used to compute a consistent subset of the given triples.
-	 * @return A consistent subset of the given set of triples.
+	 * @return A consistent subset of the given set of triples, the given set is not modified.
 	 */
     Set<Triple> getConsistentTriples(Set<Triple> triples, Set<Axiom> axioms);
     
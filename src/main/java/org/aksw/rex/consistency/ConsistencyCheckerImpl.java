@@ -3,14 +3,31 @@
  */
 package org.aksw.rex.consistency;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.aksw.jena_sparql_api.cache.core.QueryExecutionFactoryCacheEx;
@@ -20,6 +37,9 @@ import org.aksw.jena_sparql_api.cache.extra.CacheFrontendImpl;
 import org.aksw.jena_sparql_api.cache.h2.CacheCoreH2;
 import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
 import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
+import org.aksw.rex.consistency.ConsistencyVerdict.Rule;
+import org.aksw.rex.util.KnowledgeBaseBackend;
+import org.aksw.rex.util.Pair;
 import org.apache.log4j.Logger;
 import org.dllearner.algorithms.DisjointClassesLearner;
 import org.dllearner.algorithms.properties.AsymmetricObjectPropertyAxiomLearner;
@@ -48,10 +68,14 @@ import org.dllearner.reasoning.SPARQLReasoner;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QuerySolution;
 
 /**
  * A heuristically method to check for consistency in the knowledge base. This approach is sound but incomplete.
@@ -63,9 +87,10 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	private static final Logger logger = Logger.getLogger(ConsistencyCheckerImpl.class.getName());
 	
 	private static final NamedClass OWL_THING = new NamedClass("http://www.w3.org/2002/07/owl#Thing");
+	private static final Charset UTF8 = Charset.forName("UTF-8");
 	
 	private double accuracyThreshold = 0.7;
-	private String cacheDirectory = "sparql-cache";
+	private String cacheDirectory;
 	
 	private SparqlEndpoint endpoint; 
 	private SparqlEndpointKS ks;
@@ -84,16 +109,62 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	
 	private int maxLearningTimeInSeconds = 30;
 	
+	private boolean batchMode = true;
+	private int batchSize = 200;
+	private int numberOfThreads = 4;
+	private int maxConcurrentQueries = 4;
+	//all queries of the workers, the reasoner and the learners are sent with one of the permits
+	private final QueryPermits queryPermits = new QueryPermits(maxConcurrentQueries);
+	private DisjointnessMatrix disjointnessMatrix;
 	
-	LoadingCache<Individual, Set<NamedClass>> typesCache = CacheBuilder.newBuilder()
-		       .maximumSize(10000)
+	
+	private long profileTimeToLive = TimeUnit.DAYS.toMillis(30);
+	PropertyProfileCache profileCache;
+	
+	private ClassDictionary classDictionary = new ClassDictionary();
+	
+	//the sorted class ids of the types, weighed by their number, i.e. an individual costs the same regardless of 
+	//how late its classes got their ids
+	LoadingCache<Individual, int[]> typesCache = CacheBuilder.newBuilder()
+		       .maximumWeight(2000000)
+		       .weigher(new Weigher<Individual, int[]>() {
+		    	   @Override
+		    	   public int weigh(Individual individual, int[] types) {
+		    		   return 1 + types.length;
+		    	   }
+		       })
 		       .build(
-		           new CacheLoader<Individual, Set<NamedClass>>() {
+		           new CacheLoader<Individual, int[]>() {
 		             @Override
-					public Set<NamedClass> load(Individual individual)  {
-		            	 Set<NamedClass> types = reasoner.getTypes(individual);
-		            	 filterByNamespace(types);
-		               return types;
+					public int[] load(Individual individual)  {
+		            	 Set<NamedClass> types;
+		            	 queryPermits.acquireUninterruptibly();
+		            	 try {
+		            		 types = reasoner.getTypes(individual);
+		            	 } finally {
+		            		 queryPermits.release();
+		            	 }
+		               return toIds(types);
+		             }
+		           });
+	
+	LoadingCache<ObjectProperty, DisjointnessMask> domainMaskCache = CacheBuilder.newBuilder()
+		       .maximumSize(100)
+		       .build(
+		           new CacheLoader<ObjectProperty, DisjointnessMask>() {
+		             @Override
+					public DisjointnessMask load(ObjectProperty property) throws ExecutionException  {
+		               return createMask(domainCache.get(property));
+		             }
+		           });
+	
+	LoadingCache<ObjectProperty, DisjointnessMask> rangeMaskCache = CacheBuilder.newBuilder()
+		       .maximumSize(100)
+		       .build(
+		           new CacheLoader<ObjectProperty, DisjointnessMask>() {
+		             @Override
+					public DisjointnessMask load(ObjectProperty property) throws ExecutionException  {
+		               return createMask(rangeCache.get(property));
 		             }
 		           });
 	
@@ -123,32 +194,65 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 		           new CacheLoader<Set<NamedClass>, EvaluatedAxiom>() {
 		             @Override
 					public EvaluatedAxiom load(Set<NamedClass> classes)  {
-		               return disjointnessLearner.computeDisjointness(classes).iterator().next();
+		            	 synchronized (disjointnessLearner) {
+		            		 queryPermits.acquireUninterruptibly();
+		            		 try {
+		            			 return disjointnessLearner.computeDisjointness(classes).iterator().next();
+		            		 } finally {
+		            			 queryPermits.release();
+		            		 }
+		            	 }
 		             }
 		           });
 	
 	
 	
 	public ConsistencyCheckerImpl(SparqlEndpoint endpoint, String namespace) {
+		this(endpoint, namespace, "sparql-cache");
+	}
+	
+	/**
+	 * @param endpoint
+	 * @param namespace only classes of this namespace are considered, null for all classes
+	 * @param cacheDirectory directory of the query cache, the property profiles and the disjointness matrix
+	 */
+	public ConsistencyCheckerImpl(SparqlEndpoint endpoint, String namespace, String cacheDirectory) {
 		this.endpoint = endpoint;
 		this.namespace = namespace;
+		this.cacheDirectory = cacheDirectory;
+		//the profiles of different knowledge bases are stored in different files
+		String profileFile = "property-profiles-" + UUID.nameUUIDFromBytes(getKnowledgeBaseId().getBytes(UTF8)) + ".json";
+		profileCache = new PropertyProfileCache(new File(cacheDirectory, profileFile), profileTimeToLive, 
+				new CacheLoader<ObjectProperty, PropertyProfile>() {
+					@Override
+					public PropertyProfile load(ObjectProperty property) {
+						return computeProfile(property);
+					}
+				});
 		try {
-			ks = new SparqlEndpointKS(endpoint);
-			ks.init();
-			
-			
-			qef = new QueryExecutionFactoryHttp(endpoint.getURL().toString(), endpoint.getDefaultGraphURIs());
-			try {
-				long timeToLive = TimeUnit.DAYS.toMillis(30);
-				CacheBackend cacheBackend = CacheCoreH2.create(cacheDirectory, timeToLive, true);
-				CacheFrontend cacheFrontend = new CacheFrontendImpl(cacheBackend);
-				ks.setCache(cacheFrontend);
-				qef = new QueryExecutionFactoryCacheEx(qef, cacheFrontend);
-				reasoner = new SPARQLReasoner(new SparqlEndpointKS(endpoint), cacheFrontend);
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
-			} catch (SQLException e) {
-				e.printStackTrace();
+			if(KnowledgeBaseBackend.isLocal()){
+				//answer all queries from the local dump
+				ks = KnowledgeBaseBackend.createKnowledgeSource(endpoint);
+				ks.init();
+				qef = KnowledgeBaseBackend.createQueryExecutionFactory(endpoint, null);
+				reasoner = new SPARQLReasoner(ks);
+			} else {
+				ks = new SparqlEndpointKS(endpoint);
+				ks.init();
+				
+				qef = new QueryExecutionFactoryHttp(endpoint.getURL().toString(), endpoint.getDefaultGraphURIs());
+				try {
+					long timeToLive = TimeUnit.DAYS.toMillis(30);
+					CacheBackend cacheBackend = CacheCoreH2.create(cacheDirectory, timeToLive, true);
+					CacheFrontend cacheFrontend = new CacheFrontendImpl(cacheBackend);
+					ks.setCache(cacheFrontend);
+					qef = new QueryExecutionFactoryCacheEx(qef, cacheFrontend);
+					reasoner = new SPARQLReasoner(new SparqlEndpointKS(endpoint), cacheFrontend);
+				} catch (ClassNotFoundException e) {
+					e.printStackTrace();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
 			}
 			
 			disjointnessLearner = new DisjointClassesLearner(ks);
@@ -189,19 +293,96 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 			e.printStackTrace();
 		}
 		
-		
-		
+		//load the precomputed disjointness scores
+		File matrixFile = getDisjointnessMatrixFile();
+		if(matrixFile.exists()){
+			try {
+				disjointnessMatrix = DisjointnessMatrix.load(matrixFile, getKnowledgeBaseId());
+				logger.info("Loaded disjointness matrix of " + disjointnessMatrix.size() + " classes.");
+			} catch (IOException e) {
+				logger.error("Could not load disjointness matrix from " + matrixFile, e);
+			}
+		}
 	}
 	
 	public ConsistencyCheckerImpl(SparqlEndpoint endpoint) {
 		this(endpoint, null);
 	}
 	
+	/**
+	 * @return identifies the knowledge base the cached profiles and scores were computed on, i.e. the URL and 
+	 * graphs of the endpoint resp. the dumps of the local backend
+	 */
+	private String getKnowledgeBaseId(){
+		if(KnowledgeBaseBackend.isLocal()){
+			return KnowledgeBaseBackend.getType() + " " + System.getProperty(KnowledgeBaseBackend.DUMP_PROPERTY);
+		}
+		return endpoint.getURL() + " " + endpoint.getDefaultGraphURIs() + " " + endpoint.getNamedGraphURIs();
+	}
+	
+	/**
+	 * @param batchMode if TRUE, triples are checked property by property with a few set-oriented queries instead of
+	 * several queries per triple
+	 */
+	public void setBatchMode(boolean batchMode) {
+		this.batchMode = batchMode;
+	}
+	
+	/**
+	 * @param batchSize the maximum number of resources resp. pairs in the VALUES block of a query in batch mode
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+	
+	/**
+	 * @param numberOfThreads the number of workers checking chunks of triples concurrently
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+	
+	/**
+	 * @param maxConcurrentQueries the maximum number of queries sent to the endpoint at the same time by all workers,
+	 * can also be changed while triples are checked
+	 */
+	public synchronized void setMaxConcurrentQueries(int maxConcurrentQueries) {
+		maxConcurrentQueries = Math.max(1, maxConcurrentQueries);
+		if(maxConcurrentQueries > this.maxConcurrentQueries){
+			queryPermits.release(maxConcurrentQueries - this.maxConcurrentQueries);
+		} else {
+			//running queries keep their permits, i.e. the limit is reached when they are finished
+			queryPermits.reducePermits(this.maxConcurrentQueries - maxConcurrentQueries);
+		}
+		this.maxConcurrentQueries = maxConcurrentQueries;
+	}
+	
+	/**
+	 * A semaphore whose number of permits can be reduced.
+	 */
+	private static class QueryPermits extends Semaphore {
+		private static final long serialVersionUID = 1L;
+		
+		QueryPermits(int permits) {
+			super(permits);
+		}
+		
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+	
 	/**
 	 * @param accuracyThreshold the minimum accuracy used to accept an automatically generated schema axiom
 	 */
 	public void setAccuracyThreshold(double accuracyThreshold) {
 		this.accuracyThreshold = accuracyThreshold;
+		//the learned domains and ranges depend on the threshold
+		domainCache.invalidateAll();
+		rangeCache.invalidateAll();
+		domainMaskCache.invalidateAll();
+		rangeMaskCache.invalidateAll();
 	}
 
 	/* (non-Javadoc)
@@ -209,71 +390,79 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 */
 	@Override
 	public Set<Triple> getConsistentTriples(Set<Triple> triples, Set<Axiom> axioms) {
-		
-		Individual subject;
-		Individual object;
-		ObjectProperty property;
-		for (Iterator<Triple> iter = triples.iterator(); iter.hasNext();) {
-			Triple triple = iter.next();
-			
-			subject = new Individual(triple.getSubject().getURI());
-			object = new Individual(triple.getObject().getURI());
-			property = new ObjectProperty(triple.getPredicate().getURI());
-			
-			//get the types of the subject
-			Set<NamedClass> subjectTypes = reasoner.getTypes(subject, namespace);
-			
-			//get the types of the object
-			Set<NamedClass> objectTypes = reasoner.getTypes(object, namespace);
-			
-			//get domain of the property
-			Set<NamedClass> domains = new HashSet<NamedClass>();
-			for (Axiom axiom : axioms) {
-				if(axiom instanceof ObjectPropertyDomainAxiom){
-					if(((ObjectPropertyDomainAxiom) axiom).getProperty().equals(property)){
-						domains.add(((ObjectPropertyDomainAxiom) axiom).getDomain().asNamedClass());
-					}
-				}
+		//get domains and ranges of the properties
+		Map<ObjectProperty, Set<NamedClass>> domains = new HashMap<ObjectProperty, Set<NamedClass>>();
+		Map<ObjectProperty, Set<NamedClass>> ranges = new HashMap<ObjectProperty, Set<NamedClass>>();
+		for (Axiom axiom : axioms) {
+			if(axiom instanceof ObjectPropertyDomainAxiom){
+				ObjectPropertyDomainAxiom domainAxiom = (ObjectPropertyDomainAxiom) axiom;
+				getOrCreate(domains, domainAxiom.getProperty()).add(domainAxiom.getDomain().asNamedClass());
+			} else if(axiom instanceof ObjectPropertyRangeAxiom){
+				ObjectPropertyRangeAxiom rangeAxiom = (ObjectPropertyRangeAxiom) axiom;
+				getOrCreate(ranges, rangeAxiom.getProperty()).add(rangeAxiom.getRange().asNamedClass());
 			}
-			
-			//get range of the property
-			Set<NamedClass> ranges = new HashSet<NamedClass>();
-			for (Axiom axiom : axioms) {
-				if(axiom instanceof ObjectPropertyRangeAxiom){
-					if(((ObjectPropertyRangeAxiom) axiom).getProperty().equals(property)){
-						ranges.add(((ObjectPropertyRangeAxiom) axiom).getRange().asNamedClass());
-					}
-				}
+		}
+		
+		//get the types of all subjects and objects
+		Set<Individual> individuals = new LinkedHashSet<Individual>();
+		for (Triple triple : triples) {
+			individuals.add(new Individual(triple.getSubject().getURI()));
+			individuals.add(new Individual(triple.getObject().getURI()));
+		}
+		Map<Individual, Set<NamedClass>> types = new HashMap<Individual, Set<NamedClass>>();
+		for (List<Individual> batch : Lists.partition(new ArrayList<Individual>(individuals), batchSize)) {
+			try {
+				types.putAll(getTypes(batch));
+			} catch (RuntimeException e) {
+				//the triples of these individuals are kept
+				logger.error("Could not retrieve the types of " + batch.size() + " individuals", e);
 			}
+		}
+		
+		Set<Triple> consistentTriples = new LinkedHashSet<Triple>();
+		for (Triple triple : triples) {
+			Individual subject = new Individual(triple.getSubject().getURI());
+			Individual object = new Individual(triple.getObject().getURI());
+			ObjectProperty property = new ObjectProperty(triple.getPredicate().getURI());
 			
-			boolean consistent = true;
-			DisjointClassesAxiom axiom;
 			//check if there is a disjointness statement between asserted types of the subject and the domains of the property
-			for (NamedClass type : subjectTypes) {
-				for (NamedClass domain : domains) {
-					axiom = new DisjointClassesAxiom(type, domain);
-					if(axioms.contains(axiom)){
-						consistent = false;
-					}
-				}
+			//resp. between asserted types of the object and the ranges of the property
+			if(isDisjoint(types.get(subject), domains.get(property), axioms) || isDisjoint(types.get(object), ranges.get(property), axioms)){
+				logger.warn("Omitting triple " + triple);
+			} else {
+				consistentTriples.add(triple);
 			}
-			
-			//check if there is a disjointness statement between asserted types of the subject and the domains of the property
-			for (NamedClass type : objectTypes) {
-				for (NamedClass range : ranges) {
-					axiom = new DisjointClassesAxiom(type, range);
-					if(axioms.contains(axiom)){
-						consistent = false;
-					}
+		}
+		return consistentTriples;
+	}
+	
+	private static Set<NamedClass> getOrCreate(Map<ObjectProperty, Set<NamedClass>> map, ObjectProperty property){
+		Set<NamedClass> classes = map.get(property);
+		if(classes == null){
+			classes = new HashSet<NamedClass>();
+			map.put(property, classes);
+		}
+		return classes;
+	}
+	
+	/**
+	 * @param types
+	 * @param classes
+	 * @param axioms
+	 * @return TRUE if the axioms contain a disjointness axiom of one of the types and one of the classes
+	 */
+	private static boolean isDisjoint(Set<NamedClass> types, Set<NamedClass> classes, Set<Axiom> axioms){
+		if(types == null || classes == null){
+			return false;
+		}
+		for (NamedClass type : types) {
+			for (NamedClass cls : classes) {
+				if(axioms.contains(new DisjointClassesAxiom(type, cls))){
+					return true;
 				}
 			}
-			
-			if(!consistent){
-				logger.warn("Omitting triple " + triple);
-				iter.remove();
-			}
 		}
-		return triples;
+		return false;
 	}
 
 	/* (non-Javadoc)
@@ -354,19 +543,19 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 */
 	private Set<NamedClass> getDomain(SparqlEndpointKS ks, ObjectProperty property){
 		//get domains of the property
-		SortedSet<NamedClass> domains = reasoner.getDomains(property);
+		SortedSet<NamedClass> domains;
+		queryPermits.acquireUninterruptibly();
+		try {
+			domains = reasoner.getDomains(property);
+		} finally {
+			queryPermits.release();
+		}
 		//if domain is not available in the knowledge base, we try to learn an appropriate one
 		if(domains.isEmpty() || (domains.size() == 1 && domains.contains(OWL_THING))){
-			try {
-				domainLearner.setPropertyToDescribe(property);
-				domainLearner.start();
-				List<Axiom> domainAxioms = domainLearner.getCurrentlyBestAxioms(accuracyThreshold);
-				
-				for (Axiom axiom : domainAxioms) {
-					domains.add(((ObjectPropertyDomainAxiom)axiom).getDomain().asNamedClass());
+			for (Entry<String, Double> entry : getLearnedDomainScores(property).entrySet()) {
+				if(entry.getValue() >= accuracyThreshold){
+					domains.add(new NamedClass(entry.getKey()));
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
 			}
 		}
 		//filter out domain classes not starting with namespace
@@ -381,19 +570,19 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 */
 	private Set<NamedClass> getRange(SparqlEndpointKS ks, ObjectProperty property){
 		//get ranges of the property
-		SortedSet<NamedClass> ranges = reasoner.getRanges(property);
+		SortedSet<NamedClass> ranges;
+		queryPermits.acquireUninterruptibly();
+		try {
+			ranges = reasoner.getRanges(property);
+		} finally {
+			queryPermits.release();
+		}
 		//if range is not available in the knowledge base, we try to learn an appropriate one
 		if(ranges.isEmpty() || (ranges.size() == 1 && ranges.contains(OWL_THING))){
-			try {
-				rangeLearner.setPropertyToDescribe(property);
-				rangeLearner.start();
-				List<Axiom> rangeAxioms = rangeLearner.getCurrentlyBestAxioms(accuracyThreshold);
-				
-				for (Axiom axiom : rangeAxioms) {
-					ranges.add(((ObjectPropertyRangeAxiom)axiom).getRange().asNamedClass());
+			for (Entry<String, Double> entry : getLearnedRangeScores(property).entrySet()) {
+				if(entry.getValue() >= accuracyThreshold){
+					ranges.add(new NamedClass(entry.getKey()));
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
 			}
 		}
 		//filter out range classes not starting with namespace
@@ -401,6 +590,82 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 		return ranges;
 	}
 	
+	/**
+	 * Returns the scores of the learned domain axioms, which are learned when they are needed the first time and 
+	 * stored in the profile of the property.
+	 * @param property
+	 * @return the URIs of the domain classes with the accuracy of their axioms, empty if learning failed
+	 */
+	private Map<String, Double> getLearnedDomainScores(ObjectProperty property){
+		PropertyProfile profile = profileCache.get(property);
+		Map<String, Double> scores = profile.getDomainScores();
+		if(scores == null){
+			synchronized (domainLearner) {
+				scores = profile.getDomainScores();
+				if(scores == null){
+					try {
+						domainLearner.setPropertyToDescribe(property);
+						queryPermits.acquireUninterruptibly();
+						try {
+							domainLearner.start();
+						} finally {
+							queryPermits.release();
+						}
+						scores = new HashMap<String, Double>();
+						for (EvaluatedAxiom axiom : domainLearner.getCurrentlyBestEvaluatedAxioms(0d)) {
+							scores.put(((ObjectPropertyDomainAxiom) axiom.getAxiom()).getDomain().asNamedClass().getName(), axiom.getScore().getAccuracy());
+						}
+						profile.setDomainScores(scores);
+						profileCache.update(profile);
+					} catch (Exception e) {
+						//nothing is stored, i.e. the domain is learned again next time
+						logger.error("Could not learn the domain of " + property, e);
+						return Collections.emptyMap();
+					}
+				}
+			}
+		}
+		return scores;
+	}
+	
+	/**
+	 * Returns the scores of the learned range axioms, which are learned when they are needed the first time and 
+	 * stored in the profile of the property.
+	 * @param property
+	 * @return the URIs of the range classes with the accuracy of their axioms, empty if learning failed
+	 */
+	private Map<String, Double> getLearnedRangeScores(ObjectProperty property){
+		PropertyProfile profile = profileCache.get(property);
+		Map<String, Double> scores = profile.getRangeScores();
+		if(scores == null){
+			synchronized (rangeLearner) {
+				scores = profile.getRangeScores();
+				if(scores == null){
+					try {
+						rangeLearner.setPropertyToDescribe(property);
+						queryPermits.acquireUninterruptibly();
+						try {
+							rangeLearner.start();
+						} finally {
+							queryPermits.release();
+						}
+						scores = new HashMap<String, Double>();
+						for (EvaluatedAxiom axiom : rangeLearner.getCurrentlyBestEvaluatedAxioms(0d)) {
+							scores.put(((ObjectPropertyRangeAxiom) axiom.getAxiom()).getRange().asNamedClass().getName(), axiom.getScore().getAccuracy());
+						}
+						profile.setRangeScores(scores);
+						profileCache.update(profile);
+					} catch (Exception e) {
+						//nothing is stored, i.e. the range is learned again next time
+						logger.error("Could not learn the range of " + property, e);
+						return Collections.emptyMap();
+					}
+				}
+			}
+		}
+		return scores;
+	}
+	
 	/**
 	 * Returns domain and range axioms, as well as axioms according to characteristics of the given properties.
 	 * @param properties
@@ -456,38 +721,383 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 */
 	@Override
 	public Set<Triple> getConsistentTriples(Set<Triple> triples) {
-		
-		for (Iterator<Triple> iter = triples.iterator(); iter.hasNext();) {
-			Triple triple = iter.next();
-			logger.debug("Checking triple " + triple);
-			Individual subject = new Individual(triple.getSubject().getURI());
-			Individual object = new Individual(triple.getObject().getURI());
-			ObjectProperty property = new ObjectProperty(triple.getPredicate().getURI());
+		Set<Triple> consistentTriples = new LinkedHashSet<Triple>();
+		for (ConsistencyVerdict verdict : getVerdicts(triples).values()) {
+			//triples which could not be checked are kept
+			if(verdict.isConsistent() || !verdict.isChecked()){
+				consistentTriples.add(verdict.getTriple());
+			} else {
+				logger.warn("Omitting triple " + verdict.getTriple() + " because it violates the " + verdict.getViolatedRule() + ".");
+			}
+		}
+		return consistentTriples;
+	}
+	
+	/**
+	 * Checks the triples in chunks of the batch size on {@link #setNumberOfThreads(int)} workers. The given set is 
+	 * not modified. Triples which could not be checked, because a query failed or the thread was interrupted, get an 
+	 * unchecked verdict, see {@link ConsistencyVerdict#isChecked()}. A triple whose queries fail does not affect the 
+	 * other triples of its chunk.
+	 * @param triples
+	 * @return the verdict for each triple, in the order of the given triples
+	 */
+	public Map<Triple, ConsistencyVerdict> getVerdicts(Set<Triple> triples) {
+		Map<Triple, ConsistencyVerdict> verdicts = new LinkedHashMap<Triple, ConsistencyVerdict>();
+		List<List<Triple>> chunks = Lists.partition(new ArrayList<Triple>(triples), batchSize);
+		if(numberOfThreads <= 1 || chunks.size() <= 1){
+			for (List<Triple> chunk : chunks) {
+				verdicts.putAll(checkChunk(chunk));
+			}
+		} else {
+			checkConcurrently(chunks, verdicts);
+		}
+		int unchecked = 0;
+		for (ConsistencyVerdict verdict : verdicts.values()) {
+			if(!verdict.isChecked()){
+				unchecked++;
+			}
+		}
+		if(unchecked > 0){
+			logger.warn(unchecked + " of " + verdicts.size() + " triples could not be checked.");
+		}
+		return verdicts;
+	}
+	
+	/**
+	 * Checks the chunks on {@link #setNumberOfThreads(int)} workers.
+	 * @param chunks
+	 * @param verdicts the verdicts of the triples are added to, in the order of the chunks
+	 */
+	private void checkConcurrently(List<List<Triple>> chunks, Map<Triple, ConsistencyVerdict> verdicts) {
+		ExecutorService workers = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactoryBuilder().setNameFormat("consistency-checker-%d").build());
+		int checked = 0;
+		try {
+			List<Future<Map<Triple, ConsistencyVerdict>>> futures = new ArrayList<Future<Map<Triple, ConsistencyVerdict>>>();
+			for (final List<Triple> chunk : chunks) {
+				futures.add(workers.submit(new Callable<Map<Triple, ConsistencyVerdict>>() {
+					@Override
+					public Map<Triple, ConsistencyVerdict> call() throws Exception {
+						return checkChunk(chunk);
+					}
+				}));
+			}
+			for (; checked < chunks.size(); checked++) {
+				try {
+					verdicts.putAll(futures.get(checked).get());
+				} catch (ExecutionException e) {
+					logger.error("Could not check " + chunks.get(checked).size() + " triples", e);
+					putUnchecked(verdicts, chunks.get(checked));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			//keep the triples which were not checked yet
+			logger.warn("Interrupted, " + (chunks.size() - checked) + " chunks of triples are not checked.");
+			for (int i = checked; i < chunks.size(); i++) {
+				putUnchecked(verdicts, chunks.get(i));
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Checks a chunk of triples. If a query of the chunk fails, the chunk is split to find the triple causing the 
+	 * failure, e.g. an IRI the endpoint can not parse, such that only this triple is kept unchecked.
+	 * @param triples
+	 * @return the verdicts of the triples
+	 */
+	private Map<Triple, ConsistencyVerdict> checkChunk(List<Triple> triples) {
+		Map<Triple, ConsistencyVerdict> verdicts = new LinkedHashMap<Triple, ConsistencyVerdict>();
+		try {
+			verdicts.putAll(check(triples));
+		} catch (RuntimeException e) {
+			checkHalves(triples, e, verdicts);
+		}
+		return verdicts;
+	}
+	
+	/**
+	 * Checks both halves of triples whose check failed. If only one half fails, it is split again. If both halves 
+	 * fail, the failure is not caused by a single triple, e.g. the endpoint is not available, and all triples are 
+	 * kept unchecked without sending further queries.
+	 * @param triples
+	 * @param error the failure of checking all triples
+	 * @param verdicts the verdicts of the triples are added to
+	 */
+	private void checkHalves(List<Triple> triples, RuntimeException error, Map<Triple, ConsistencyVerdict> verdicts) {
+		if(triples.size() == 1){
+			logger.error("Could not check triple " + triples.get(0), error);
+			putUnchecked(verdicts, triples);
+			return;
+		}
+		List<Triple> first = triples.subList(0, triples.size() / 2);
+		List<Triple> second = triples.subList(triples.size() / 2, triples.size());
+		Map<Triple, ConsistencyVerdict> firstVerdicts;
+		try {
+			firstVerdicts = check(first);
+		} catch (RuntimeException firstError) {
+			Map<Triple, ConsistencyVerdict> secondVerdicts;
 			try {
-				
-				if(violatesDisjointnessRestrictions(subject, object, property)){
-					logger.warn("Omitting triple " + triple + " because it violates the disjointness restrictions.");
-					iter.remove();
-				} else if(isFunctional(property) && violatesFunctionality(subject, object, property)){
-					logger.warn("Omitting triple " + triple + " because it violates the functionality restriction.");
-					iter.remove();
-				} else if(isInverseFunctional(property) && violatesInverseFunctionality(subject, object, property)){
-					logger.warn("Omitting triple " + triple + " because it violates the inverse-functionality restriction.");
-					iter.remove();
-				} else if(isAsymmetric(property) && violatesAsymmetry(subject, object, property)){
-					logger.warn("Omitting triple " + triple + " because it violates the asymmetry restriction.");
-					iter.remove();
-				} else if(isIrreflexive(property) && violatesIrreflexivity(subject, object, property)){
-					logger.warn("Omitting triple " + triple + " because it violates the irreflexivity restriction.");
-					iter.remove();
+				secondVerdicts = check(second);
+			} catch (RuntimeException secondError) {
+				logger.error("Could not check " + triples.size() + " triples", secondError);
+				putUnchecked(verdicts, triples);
+				return;
+			}
+			checkHalves(first, firstError, verdicts);
+			verdicts.putAll(secondVerdicts);
+			return;
+		}
+		verdicts.putAll(firstVerdicts);
+		//the failure is caused by the second half
+		checkHalves(second, error, verdicts);
+	}
+	
+	/**
+	 * Adds unchecked verdicts of the triples.
+	 * @param verdicts
+	 * @param triples
+	 */
+	private void putUnchecked(Map<Triple, ConsistencyVerdict> verdicts, List<Triple> triples) {
+		for (Triple triple : triples) {
+			verdicts.put(triple, ConsistencyVerdict.unchecked(triple));
+		}
+	}
+	
+	/**
+	 * @param triples
+	 * @return the verdicts of the triples
+	 * @throws RuntimeException if a query failed, i.e. the triples could not be checked
+	 */
+	private Map<Triple, ConsistencyVerdict> check(List<Triple> triples) {
+		if(batchMode){
+			return getVerdictsBatch(triples);
+		}
+		Set<Individual> individuals = new HashSet<Individual>();
+		for (Triple triple : triples) {
+			individuals.add(new Individual(triple.getSubject().getURI()));
+			individuals.add(new Individual(triple.getObject().getURI()));
+		}
+		prefetchTypes(individuals);
+		Map<Triple, ConsistencyVerdict> verdicts = new LinkedHashMap<Triple, ConsistencyVerdict>();
+		for (Triple triple : triples) {
+			verdicts.put(triple, getVerdict(triple));
+		}
+		return verdicts;
+	}
+	
+	private ConsistencyVerdict getVerdict(Triple triple) {
+		logger.debug("Checking triple " + triple);
+		Individual subject = new Individual(triple.getSubject().getURI());
+		Individual object = new Individual(triple.getObject().getURI());
+		ObjectProperty property = new ObjectProperty(triple.getPredicate().getURI());
+		Rule violatedRule = null;
+		try {
+			if(violatesDisjointnessRestrictions(subject, object, property)){
+				violatedRule = Rule.DISJOINTNESS;
+			} else if(isFunctional(property) && violatesFunctionality(subject, object, property)){
+				violatedRule = Rule.FUNCTIONALITY;
+			} else if(isInverseFunctional(property) && violatesInverseFunctionality(subject, object, property)){
+				violatedRule = Rule.INVERSE_FUNCTIONALITY;
+			} else if(isAsymmetric(property) && violatesAsymmetry(subject, object, property)){
+				violatedRule = Rule.ASYMMETRY;
+			} else if(isIrreflexive(property) && violatesIrreflexivity(subject, object, property)){
+				violatedRule = Rule.IRREFLEXIVITY;
+			}
+		} catch (ExecutionException e) {
+			logger.error("Could not check triple " + triple, e);
+			return ConsistencyVerdict.unchecked(triple);
+		} catch (UncheckedExecutionException e) {
+			logger.error("Could not check triple " + triple, e);
+			return ConsistencyVerdict.unchecked(triple);
+		}
+		return new ConsistencyVerdict(triple, violatedRule);
+	}
+	
+	/**
+	 * Checks the triples property by property. The types of all subjects and objects are retrieved with VALUES 
+	 * queries, violations of functionality, inverse-functionality and asymmetry are detected with one SELECT query 
+	 * per batch of triples returning the violating pairs.
+	 * @param triples
+	 * @return the verdict for each triple
+	 * @throws RuntimeException if a query failed
+	 */
+	private Map<Triple, ConsistencyVerdict> getVerdictsBatch(List<Triple> triples) {
+		//group the triples by property
+		Map<String, List<Triple>> property2Triples = new HashMap<String, List<Triple>>();
+		Set<Individual> individuals = new HashSet<Individual>();
+		for (Triple triple : triples) {
+			List<Triple> propertyTriples = property2Triples.get(triple.getPredicate().getURI());
+			if(propertyTriples == null){
+				propertyTriples = new ArrayList<Triple>();
+				property2Triples.put(triple.getPredicate().getURI(), propertyTriples);
+			}
+			propertyTriples.add(triple);
+			individuals.add(new Individual(triple.getSubject().getURI()));
+			individuals.add(new Individual(triple.getObject().getURI()));
+		}
+		
+		//load the types of all individuals not cached yet
+		prefetchTypes(individuals);
+		
+		Map<Triple, ConsistencyVerdict> verdicts = new HashMap<Triple, ConsistencyVerdict>();
+		for (Entry<String, List<Triple>> entry : property2Triples.entrySet()) {
+			ObjectProperty property = new ObjectProperty(entry.getKey());
+			List<Triple> propertyTriples = entry.getValue();
+			logger.debug("Checking " + propertyTriples.size() + " triples of property " + property);
+			
+			Set<Pair<String, String>> functionalityViolations = Collections.emptySet();
+			Set<Pair<String, String>> inverseFunctionalityViolations = Collections.emptySet();
+			Set<Pair<String, String>> asymmetryViolations = Collections.emptySet();
+			//a failed query must not be taken for the absence of violations, i.e. the error is passed on
+			if(isFunctional(property) && isSupposedToBeFunctional(property)){
+				functionalityViolations = getViolatingPairs(propertyTriples, 
+						"?s <" + property + "> ?o_other. FILTER(?o_other != ?o)");
+			}
+			if(isInverseFunctional(property)){
+				inverseFunctionalityViolations = getViolatingPairs(propertyTriples, 
+						"?s_other <" + property + "> ?o. FILTER(?s_other != ?s)");
+			}
+			if(isAsymmetric(property)){
+				asymmetryViolations = getViolatingPairs(propertyTriples, 
+						"?o <" + property + "> ?s.");
+			}
+			boolean irreflexive = isIrreflexive(property);
+			
+			for (Triple triple : propertyTriples) {
+				Individual subject = new Individual(triple.getSubject().getURI());
+				Individual object = new Individual(triple.getObject().getURI());
+				Pair<String, String> pair = new Pair<String, String>(subject.getName(), object.getName());
+				Rule violatedRule = null;
+				try {
+					if(violatesDisjointnessRestrictions(subject, object, property)){
+						violatedRule = Rule.DISJOINTNESS;
+					} else if(functionalityViolations.contains(pair)){
+						violatedRule = Rule.FUNCTIONALITY;
+					} else if(inverseFunctionalityViolations.contains(pair)){
+						violatedRule = Rule.INVERSE_FUNCTIONALITY;
+					} else if(asymmetryViolations.contains(pair)){
+						violatedRule = Rule.ASYMMETRY;
+					} else if(irreflexive && violatesIrreflexivity(subject, object, property)){
+						violatedRule = Rule.IRREFLEXIVITY;
+					}
+				} catch (ExecutionException e) {
+					logger.error("Could not check triple " + triple, e);
+					verdicts.put(triple, ConsistencyVerdict.unchecked(triple));
+					continue;
+				} catch (UncheckedExecutionException e) {
+					logger.error("Could not check triple " + triple, e);
+					verdicts.put(triple, ConsistencyVerdict.unchecked(triple));
+					continue;
 				}
-			} catch (ExecutionException e) {
-				e.printStackTrace();
-			}catch (UncheckedExecutionException e) {
-				e.printStackTrace();
+				verdicts.put(triple, new ConsistencyVerdict(triple, violatedRule));
+			}
+		}
+		//keep the order of the given triples
+		Map<Triple, ConsistencyVerdict> orderedVerdicts = new LinkedHashMap<Triple, ConsistencyVerdict>();
+		for (Triple triple : triples) {
+			orderedVerdicts.put(triple, verdicts.get(triple));
+		}
+		return orderedVerdicts;
+	}
+	
+	/**
+	 * Loads the types of the given individuals into the types cache with one query per batch. Nothing is cached
+	 * for a batch whose query failed.
+	 * @param individuals
+	 * @throws RuntimeException if a query failed
+	 */
+	private void prefetchTypes(Set<Individual> individuals){
+		List<Individual> uncached = new ArrayList<Individual>();
+		for (Individual individual : individuals) {
+			if(typesCache.getIfPresent(individual) == null){
+				uncached.add(individual);
+			}
+		}
+		for (List<Individual> batch : Lists.partition(uncached, batchSize)) {
+			Map<Individual, int[]> individual2Types = new HashMap<Individual, int[]>();
+			for (Entry<Individual, Set<NamedClass>> entry : getTypes(batch).entrySet()) {
+				individual2Types.put(entry.getKey(), toIds(entry.getValue()));
+			}
+			typesCache.putAll(individual2Types);
+		}
+	}
+	
+	/**
+	 * Retrieves the types of the given individuals with one query.
+	 * @param individuals
+	 * @return the types of each individual which belong to the namespace
+	 * @throws RuntimeException if the query failed
+	 */
+	private Map<Individual, Set<NamedClass>> getTypes(List<Individual> individuals){
+		Map<Individual, Set<NamedClass>> individual2Types = new HashMap<Individual, Set<NamedClass>>();
+		StringBuilder values = new StringBuilder();
+		for (Individual individual : individuals) {
+			individual2Types.put(individual, new HashSet<NamedClass>());
+			values.append(" <").append(individual.getName()).append(">");
+		}
+		String query = "SELECT ?s ?type WHERE {VALUES ?s {" + values + "} ?s a ?type. FILTER(isIRI(?type))}";
+		for (QuerySolution qs : select(query)) {
+			Set<NamedClass> types = individual2Types.get(new Individual(qs.getResource("s").getURI()));
+			String type = qs.getResource("type").getURI();
+			if(types != null && (namespace == null || type.startsWith(namespace))){
+				types.add(new NamedClass(type));
+			}
+		}
+		return individual2Types;
+	}
+	
+	/**
+	 * @param types
+	 * @return the sorted ids of the types which belong to the namespace
+	 */
+	private int[] toIds(Set<NamedClass> types){
+		List<String> uris = new ArrayList<String>(types.size());
+		for (NamedClass type : types) {
+			if(namespace == null || type.getName().startsWith(namespace)){
+				uris.add(type.getName());
 			}
 		}
-		return triples;
+		return classDictionary.toIds(uris);
+	}
+	
+	/**
+	 * Runs one query per batch of triples, which returns the pairs (?s ?o) of the batch matching the given pattern.
+	 * @param triples
+	 * @param pattern graph pattern violating a restriction for a pair (?s ?o)
+	 * @return the pairs (?s ?o) matching the pattern
+	 */
+	private Set<Pair<String, String>> getViolatingPairs(List<Triple> triples, String pattern){
+		Set<Pair<String, String>> pairs = new HashSet<Pair<String, String>>();
+		for (List<Triple> batch : Lists.partition(triples, batchSize)) {
+			StringBuilder values = new StringBuilder();
+			for (Triple triple : batch) {
+				values.append(" (<").append(triple.getSubject().getURI()).append("> <").append(triple.getObject().getURI()).append(">)");
+			}
+			for (QuerySolution qs : select("SELECT DISTINCT ?s ?o WHERE {VALUES (?s ?o) {" + values + "} " + pattern + "}")) {
+				pairs.add(new Pair<String, String>(qs.getResource("s").getURI(), qs.getResource("o").getURI()));
+			}
+		}
+		return pairs;
+	}
+	
+	private List<QuerySolution> select(String query){
+		return KnowledgeBaseBackend.select(qef, queryPermits, query);
+	}
+	
+	private boolean ask(String query){
+		queryPermits.acquireUninterruptibly();
+		QueryExecution qe = null;
+		try {
+			qe = qef.createQueryExecution(query);
+			return qe.execAsk();
+		} finally {
+			if(qe != null){
+				qe.close();
+			}
+			queryPermits.release();
+		}
 	}
 	
 	/**
@@ -500,49 +1110,153 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 * @throws ExecutionException
 	 */
 	private boolean violatesDisjointnessRestrictions(Individual subject, Individual object, ObjectProperty property) throws ExecutionException{
-		//get the types of the subject
-		Set<NamedClass> subjectTypes = typesCache.get(subject);
-		logger.debug("Subject types: " + subjectTypes);
-		
-		//get the types of the object
-		Set<NamedClass> objectTypes = typesCache.get(object);
-		logger.debug("Object types: " + objectTypes);
+		//get the types of the subject and the types disjoint with the domain of the property
+		int[] subjectTypes = typesCache.get(subject);
+		DisjointnessMask domainMask = domainMaskCache.get(property);
+		if(domainMask.intersects(subjectTypes)){
+			logger.debug("Detected disjointness violation of subject types " + classDictionary.toURIs(subjectTypes) + 
+					" and domain " + domainCache.get(property));
+			return true;
+		}
 		
-		//get domain of the property
-		Set<NamedClass> domains = domainCache.get(property);
-		logger.debug("Domain: " + domains);
+		//get the types of the object and the types disjoint with the range of the property
+		int[] objectTypes = typesCache.get(object);
+		DisjointnessMask rangeMask = rangeMaskCache.get(property);
+		if(rangeMask.intersects(objectTypes)){
+			logger.debug("Detected disjointness violation of object types " + classDictionary.toURIs(objectTypes) + 
+					" and range " + rangeCache.get(property));
+			return true;
+		}
+		//knowledge base remains consistent according to the rules we checked in this method
+		return false;
+	}
+	
+	/**
+	 * The types disjoint with a set of classes, i.e. the domain or range of a property. Scores missing in the
+	 * disjointness matrix are computed when a type occurs the first time.
+	 */
+	private class DisjointnessMask {
+		private final Set<NamedClass> classes;
+		//types disjoint with one of the classes
+		private final BitSet disjoint = new BitSet();
+		//types already checked
+		private final BitSet known = new BitSet();
 		
-		//get range of the property
-		Set<NamedClass> ranges = rangeCache.get(property);
-		logger.debug("Range: " + ranges);
+		DisjointnessMask(Set<NamedClass> classes) {
+			this.classes = classes;
+		}
 		
-		//try to generate disjointness axioms between subject types and property domain
-		for (NamedClass type : subjectTypes) {
-			for (NamedClass domain : domains) {
-//				EvaluatedAxiom axiom = disjointnessLearner.computeDisjointess(type, domain);
-				EvaluatedAxiom axiom = disjointnessCache.get(Sets.newHashSet(type, domain));
-				if(axiom.getScore().getAccuracy() >= accuracyThreshold){
-					logger.debug("Detected disjointness violation of subject type " + type + " and domain " + domain + 
-							" with a confidence of " + axiom.getScore().getAccuracy());
+		synchronized boolean intersects(int[] types) throws ExecutionException {
+			for (int id : types) {
+				if(!known.get(id)){
+					NamedClass type = new NamedClass(classDictionary.getURI(id));
+					for (NamedClass cls : classes) {
+						if(getDisjointnessScore(type, cls) >= accuracyThreshold){
+							disjoint.set(id);
+							break;
+						}
+					}
+					known.set(id);
+				}
+				if(disjoint.get(id)){
 					return true;
 				}
 			}
+			return false;
 		}
-		
-		//try to generate disjointness axioms between object types and property range
-		for (NamedClass type : objectTypes) {
-			for (NamedClass range : ranges) {
-//				EvaluatedAxiom axiom = disjointnessLearner.computeDisjointess(type, range);
-				EvaluatedAxiom axiom = disjointnessCache.get(Sets.newHashSet(type, range));
-				if(axiom.getScore().getAccuracy() >= accuracyThreshold){
-					logger.debug("Detected disjointness violation of object type " + type + " and range " + range + 
-							" with a confidence of " + axiom.getScore().getAccuracy());
-					return true;
+	}
+	
+	/**
+	 * Creates the mask of the classes, precomputed for all classes of the disjointness matrix.
+	 * @param classes
+	 * @return
+	 */
+	private DisjointnessMask createMask(Set<NamedClass> classes){
+		DisjointnessMask mask = new DisjointnessMask(classes);
+		if(disjointnessMatrix != null){
+			for (String type : disjointnessMatrix.getClasses()) {
+				if(namespace != null && !type.startsWith(namespace)){
+					continue;
+				}
+				int id = classDictionary.getId(type);
+				boolean complete = true;
+				for (NamedClass cls : classes) {
+					float score = disjointnessMatrix.getScore(type, cls.getName());
+					if(Float.isNaN(score)){
+						complete = false;
+					} else if(score >= accuracyThreshold){
+						mask.disjoint.set(id);
+						complete = true;
+						break;
+					}
+				}
+				if(complete){
+					mask.known.set(id);
 				}
 			}
 		}
-		//knowledge base remains consistent according to the rules we checked in this method
-		return false;
+		return mask;
+	}
+	
+	/**
+	 * Returns the disjointness score of the classes from the disjointness matrix if it contains both classes,
+	 * otherwise the score is learned.
+	 * @param cls1
+	 * @param cls2
+	 * @return
+	 * @throws ExecutionException
+	 */
+	private double getDisjointnessScore(NamedClass cls1, NamedClass cls2) throws ExecutionException{
+		if(disjointnessMatrix != null){
+			float score = disjointnessMatrix.getScore(cls1.getName(), cls2.getName());
+			if(!Float.isNaN(score)){
+				return score;
+			}
+		}
+		return disjointnessCache.get(Sets.newHashSet(cls1, cls2)).getScore().getAccuracy();
+	}
+	
+	/**
+	 * Learns the disjointness scores of all pairs of the given classes and stores them in a file, which is loaded
+	 * by later instances using the same cache directory and knowledge base. The matrix is used by this instance afterwards.
+	 * @param classes
+	 * @return the disjointness matrix of the classes
+	 * @throws IOException
+	 */
+	public DisjointnessMatrix computeDisjointnessMatrix(Collection<NamedClass> classes) throws IOException{
+		List<NamedClass> classList = new ArrayList<NamedClass>(classes);
+		List<String> uris = new ArrayList<String>();
+		for (NamedClass cls : classList) {
+			uris.add(cls.getName());
+		}
+		DisjointnessMatrix matrix = new DisjointnessMatrix(getKnowledgeBaseId(), uris);
+		for (int i = 0; i < classList.size(); i++) {
+			logger.info("Computing disjointness of " + classList.get(i) + " (" + (i + 1) + "/" + classList.size() + ")");
+			for (int j = i + 1; j < classList.size(); j++) {
+				try {
+					EvaluatedAxiom axiom = disjointnessCache.get(Sets.newHashSet(classList.get(i), classList.get(j)));
+					matrix.setScore(uris.get(i), uris.get(j), (float) axiom.getScore().getAccuracy());
+				} catch (Exception e) {
+					logger.error("Could not compute disjointness of " + classList.get(i) + " and " + classList.get(j), e);
+				}
+			}
+		}
+		matrix.save(getDisjointnessMatrixFile());
+		setDisjointnessMatrix(matrix);
+		return matrix;
+	}
+	
+	/**
+	 * @param disjointnessMatrix precomputed disjointness scores used instead of learning them
+	 */
+	public void setDisjointnessMatrix(DisjointnessMatrix disjointnessMatrix) {
+		this.disjointnessMatrix = disjointnessMatrix;
+		domainMaskCache.invalidateAll();
+		rangeMaskCache.invalidateAll();
+	}
+	
+	private File getDisjointnessMatrixFile(){
+		return new File(cacheDirectory, "disjointness.matrix");
 	}
 	
 	/**
@@ -551,11 +1265,7 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 * @return TRUE if the property is functional, otherwise FALSE
 	 */
 	private boolean isFunctional(ObjectProperty property){
-		boolean functional = false;
-		//check if property is already declared to be functional in the KB
-		functional = reasoner.isFunctional(property);
-		//TODO check if it makes sense to analyze the data
-		return functional;
+		return profileCache.get(property).isFunctional();
 	}
 	
 	/**
@@ -564,11 +1274,7 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 * @return TRUE if the property is inverse functional, otherwise FALSE
 	 */
 	private boolean isInverseFunctional(ObjectProperty property){
-		boolean inverseFunctional = false;
-		//check if property is already declared to be inverse-functional in the KB
-		inverseFunctional = reasoner.isInverseFunctional(property);
-		//TODO check if it makes sense to analyze the data
-		return inverseFunctional;
+		return profileCache.get(property).isInverseFunctional();
 	}
 	
 	/**
@@ -577,11 +1283,7 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 * @return TRUE if the property is asymmetric, otherwise FALSE
 	 */
 	private boolean isAsymmetric(ObjectProperty property){
-		boolean asymmetric = false;
-		//check if property is already declared to be asymmetric in the KB
-		asymmetric = reasoner.isAsymmetric(property);
-		//TODO check if it makes sense to analyze the data
-		return asymmetric;
+		return profileCache.get(property).isAsymmetric();
 	}
 	
 	/**
@@ -590,55 +1292,99 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 	 * @return TRUE if the property is irreflexive, otherwise FALSE
 	 */
 	private boolean isIrreflexive(ObjectProperty property){
-		boolean irreflexive = false;
-		//check if property is already declared to be irreflexive in the KB
-		irreflexive = reasoner.isIrreflexive(property);
-		//TODO check if it makes sense to analyze the data
-		return irreflexive;
+		return profileCache.get(property).isIrreflexive();
 	}
 	
 	private boolean violatesFunctionality(Individual subject, Individual object, ObjectProperty property){
-		logger.debug("Checking if " + property + " is functional...");
-		functionalLearner.setPropertyToDescribe(property);
-		functionalLearner.start();
-		List<EvaluatedAxiom> axioms = functionalLearner.getCurrentlyBestEvaluatedAxioms(0d);
-		
 		boolean violates = false;
-		if(axioms.isEmpty()){
+		if(isSupposedToBeFunctional(property)){
+			logger.debug("Validating triple...");
+			violates = ask("ASK {<" + subject + "> <" + property + "> ?o. FILTER(?o != <" + object + ">)}");
+		}
+		return violates;
+	}
+	
+	/**
+	 * Checks whether the data supports the functionality of the given property.
+	 * @param property
+	 * @return TRUE if the learned functionality axiom has at least the accuracy threshold
+	 */
+	private boolean isSupposedToBeFunctional(ObjectProperty property){
+		double accuracy = getFunctionalityScore(property);
+		if(accuracy < 0){
 			logger.debug("..." + property + " is not supposed to be functional.");
-		} else {
-			double accuracy = axioms.iterator().next().getScore().getAccuracy();
-			if(accuracy < accuracyThreshold){
-				logger.debug("..." + property + " is not supposed to be functional with a score of " + accuracy);
-			} else {
-				logger.debug("..." + property + " is supposed to be functional with a score of " + accuracy);
-				logger.debug("Validating triple...");
-				
-				if(!axioms.isEmpty()){
-					String query = "ASK {<" + subject + "> <" + property + "> ?o. FILTER(?o != <" + object + ">)}";
-					QueryExecution qe = qef.createQueryExecution(query);
-					violates = qe.execAsk();
-					qe.close();
+			return false;
+		}
+		if(accuracy < accuracyThreshold){
+			logger.debug("..." + property + " is not supposed to be functional with a score of " + accuracy);
+			return false;
+		}
+		logger.debug("..." + property + " is supposed to be functional with a score of " + accuracy);
+		return true;
+	}
+	
+	/**
+	 * Returns the score of the learned functionality axiom, which is learned when it is needed the first time.
+	 * @param property
+	 * @return the accuracy of the functionality axiom, -1 if no axiom was learned
+	 */
+	private double getFunctionalityScore(ObjectProperty property){
+		PropertyProfile profile = profileCache.get(property);
+		Double score = profile.getFunctionalityScore();
+		if(score == null){
+			synchronized (functionalLearner) {
+				score = profile.getFunctionalityScore();
+				if(score == null){
+					logger.debug("Checking if " + property + " is functional...");
+					score = -1d;
+					functionalLearner.setPropertyToDescribe(property);
+					queryPermits.acquireUninterruptibly();
+					try {
+						functionalLearner.start();
+					} finally {
+						queryPermits.release();
+					}
+					List<EvaluatedAxiom> axioms = functionalLearner.getCurrentlyBestEvaluatedAxioms(0d);
+					if(!axioms.isEmpty()){
+						score = axioms.iterator().next().getScore().getAccuracy();
+					}
+					profile.setFunctionalityScore(score);
+					profileCache.update(profile);
 				}
 			}
 		}
-		return violates;
+		return score;
+	}
+	
+	/**
+	 * Computes the characteristics declared in the knowledge base. The score of the learned functionality axiom is 
+	 * computed by {@link #getFunctionalityScore(ObjectProperty)} only for properties declared to be functional, the 
+	 * learned domain and range axioms only for properties without declared domain resp. range.
+	 * @param property
+	 * @return the profile of the property
+	 */
+	private PropertyProfile computeProfile(ObjectProperty property){
+		PropertyProfile profile = new PropertyProfile(property.getName());
+		//check if property is already declared to be functional, inverse-functional, asymmetric or irreflexive in the KB
+		//TODO check if it makes sense to analyze the data
+		queryPermits.acquireUninterruptibly();
+		try {
+			profile.setFunctional(reasoner.isFunctional(property));
+			profile.setInverseFunctional(reasoner.isInverseFunctional(property));
+			profile.setAsymmetric(reasoner.isAsymmetric(property));
+			profile.setIrreflexive(reasoner.isIrreflexive(property));
+		} finally {
+			queryPermits.release();
+		}
+		return profile;
 	}
 	
 	private boolean violatesInverseFunctionality(Individual subject, Individual object, ObjectProperty property){
-		String query = "ASK {?s <" + property + "> <" + object + ">. FILTER(?s != <" + subject + ">)}";
-		QueryExecution qe = qef.createQueryExecution(query);
-		boolean violates = qe.execAsk();
-		qe.close();
-		return violates;
+		return ask("ASK {?s <" + property + "> <" + object + ">. FILTER(?s != <" + subject + ">)}");
 	}
 	
 	private boolean violatesAsymmetry(Individual subject, Individual object, ObjectProperty property){
-		String query = "ASK {<" + object + "> <" + property + "> <" + subject + ">}";
-		QueryExecution qe = qef.createQueryExecution(query);
-		boolean violates = qe.execAsk();
-		qe.close();
-		return violates;
+		return ask("ASK {<" + object + "> <" + property + "> <" + subject + ">}");
 	}
 	
 	private boolean violatesIrreflexivity(Individual subject, Individual object, ObjectProperty property){
@@ -656,5 +1402,16 @@ public class ConsistencyCheckerImpl implements ConsistencyChecker{
 		}
 	}
 	
-	
+	/**
+	 * Computes the disjointness matrix of all classes of the DBpedia ontology.
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		SparqlEndpoint endpoint = SparqlEndpoint.getEndpointDBpedia();
+		ConsistencyCheckerImpl checker = new ConsistencyCheckerImpl(endpoint, "http://dbpedia.org/ontology/");
+		Set<NamedClass> classes = new HashSet<NamedClass>(checker.reasoner.getOWLClasses());
+		checker.filterByNamespace(classes);
+		checker.computeDisjointnessMatrix(classes);
+	}
 }
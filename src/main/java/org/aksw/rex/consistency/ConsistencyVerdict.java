@@ -0,0 +1,105 @@
+package org.aksw.rex.consistency;
+
+import com.hp.hpl.jena.graph.Triple;
+
+/**
+ * The result of checking the consistency of a single triple.
+ * 
+ * @author Lorenz Buehmann
+ * 
+ */
+public class ConsistencyVerdict {
+
+	/**
+	 * the restrictions a triple can violate
+	 */
+	public enum Rule {
+		DISJOINTNESS("disjointness restrictions"), 
+		FUNCTIONALITY("functionality restriction"), 
+		INVERSE_FUNCTIONALITY("inverse-functionality restriction"), 
+		ASYMMETRY("asymmetry restriction"), 
+		IRREFLEXIVITY("irreflexivity restriction");
+
+		private String label;
+
+		private Rule(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	private final Triple triple;
+	private final Rule violatedRule;
+	private final boolean checked;
+
+	/**
+	 * 
+	 * @param triple
+	 * @param violatedRule
+	 *            the rule violated by the triple, null if the triple is
+	 *            consistent
+	 */
+	public ConsistencyVerdict(Triple triple, Rule violatedRule) {
+		this(triple, violatedRule, true);
+	}
+
+	private ConsistencyVerdict(Triple triple, Rule violatedRule, boolean checked) {
+		this.triple = triple;
+		this.violatedRule = violatedRule;
+		this.checked = checked;
+	}
+
+	/**
+	 * 
+	 * @param triple
+	 * @return the verdict of a triple which could not be checked, e.g.
+	 *         because a query failed
+	 */
+	public static ConsistencyVerdict unchecked(Triple triple) {
+		return new ConsistencyVerdict(triple, null, false);
+	}
+
+	public Triple getTriple() {
+		return triple;
+	}
+
+	/**
+	 * @return the rule violated by the triple, null if the triple is
+	 *         consistent or could not be checked
+	 */
+	public Rule getViolatedRule() {
+		return violatedRule;
+	}
+
+	/**
+	 * @return TRUE if the triple was checked and violates no rule
+	 */
+	public boolean isConsistent() {
+		return checked && violatedRule == null;
+	}
+
+	/**
+	 * @return FALSE if the triple could not be checked, e.g. because a query
+	 *         failed
+	 */
+	public boolean isChecked() {
+		return checked;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		if (!checked) {
+			return triple + " could not be checked";
+		}
+		return triple + (isConsistent() ? " is consistent" : " violates the " + violatedRule);
+	}
+}
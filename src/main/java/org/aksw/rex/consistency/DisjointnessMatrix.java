@@ -0,0 +1,228 @@
+package org.aksw.rex.consistency;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disjointness scores of all pairs of a fixed set of classes. Classes are
+ * indexed by int, the scores are stored as floats in a symmetric matrix, NaN
+ * for pairs without score. A matrix is computed once and stored in a file,
+ * which is memory-mapped read-only when it is loaded.
+ *
+ * The file consists of a header (magic number, the knowledge base the scores
+ * were computed on, number of classes, the URIs of the classes) followed by
+ * the scores in row-major order. A matrix is only loaded for the knowledge
+ * base it was computed on.
+ *
+ * @author Lorenz Buehmann
+ *
+ */
+public class DisjointnessMatrix {
+
+	// changed with the format of the header
+	private static final int MAGIC = 0x52455845;
+
+	private final String knowledgeBase;
+	private final List<String> classes;
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+	private final FloatBuffer scores;
+
+	/**
+	 * creates an empty matrix, all scores are NaN
+	 *
+	 * @param knowledgeBase
+	 *            identifies the knowledge base the scores are computed on,
+	 *            e.g. the URL and graphs of the endpoint
+	 * @param classes
+	 *            URIs of the classes
+	 */
+	public DisjointnessMatrix(String knowledgeBase, Collection<String> classes) {
+		this.knowledgeBase = knowledgeBase;
+		this.classes = new ArrayList<String>(classes);
+		buildIndex();
+		int n = this.classes.size();
+		scores = FloatBuffer.allocate(n * n);
+		for (int i = 0; i < n * n; i++) {
+			scores.put(i, Float.NaN);
+		}
+	}
+
+	private DisjointnessMatrix(String knowledgeBase, List<String> classes, FloatBuffer scores) {
+		this.knowledgeBase = knowledgeBase;
+		this.classes = classes;
+		this.scores = scores;
+		buildIndex();
+	}
+
+	private void buildIndex() {
+		for (int i = 0; i < classes.size(); i++) {
+			index.put(classes.get(i), i);
+		}
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @param knowledgeBase
+	 *            the knowledge base the matrix is used for
+	 * @return the matrix stored in the file, the scores are memory-mapped and
+	 *         can not be changed
+	 * @throws IOException
+	 *             also if the matrix was computed on another knowledge base
+	 */
+	public static DisjointnessMatrix load(File file, String knowledgeBase) throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		DataInputStream in = new DataInputStream(fis);
+		List<String> classes;
+		long headerSize;
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a disjointness matrix or was stored by an older version.");
+			}
+			String storedKnowledgeBase = in.readUTF();
+			if (!storedKnowledgeBase.equals(knowledgeBase)) {
+				throw new IOException(file + " was computed on " + storedKnowledgeBase + ", not on " + knowledgeBase + ".");
+			}
+			int n = in.readInt();
+			classes = new ArrayList<String>(n);
+			for (int i = 0; i < n; i++) {
+				classes.add(in.readUTF());
+			}
+			// the stream is unbuffered, i.e. the scores start at the current position
+			headerSize = fis.getChannel().position();
+		} finally {
+			in.close();
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			long size = 4L * classes.size() * classes.size();
+			if (raf.length() < headerSize + size) {
+				throw new IOException(file + " is truncated.");
+			}
+			// the mapping stays valid after the channel is closed
+			FloatBuffer scores = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, headerSize, size).asFloatBuffer();
+			return new DisjointnessMatrix(knowledgeBase, classes, scores);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeUTF(knowledgeBase);
+			out.writeInt(classes.size());
+			for (String cls : classes) {
+				out.writeUTF(cls);
+			}
+			for (int i = 0; i < classes.size() * classes.size(); i++) {
+				out.writeFloat(scores.get(i));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param cls
+	 * @return the index of the class, -1 if the class is not contained
+	 */
+	public int indexOf(String cls) {
+		Integer i = index.get(cls);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 *
+	 * @param i
+	 * @param j
+	 * @return the disjointness score of the classes with the given indexes,
+	 *         NaN if unknown
+	 */
+	public float getScore(int i, int j) {
+		return scores.get(i * classes.size() + j);
+	}
+
+	/**
+	 *
+	 * @param cls1
+	 * @param cls2
+	 * @return the disjointness score of the classes, NaN if unknown or a
+	 *         class is not contained
+	 */
+	public float getScore(String cls1, String cls2) {
+		int i = indexOf(cls1);
+		int j = indexOf(cls2);
+		if (i < 0 || j < 0) {
+			return Float.NaN;
+		}
+		return getScore(i, j);
+	}
+
+	/**
+	 * sets the score of both (cls1, cls2) and (cls2, cls1)
+	 *
+	 * @param cls1
+	 * @param cls2
+	 * @param score
+	 * @throws java.nio.ReadOnlyBufferException
+	 *             if the matrix was loaded from a file
+	 */
+	public void setScore(String cls1, String cls2, float score) {
+		int i = indexOf(cls1);
+		int j = indexOf(cls2);
+		if (i < 0 || j < 0) {
+			throw new IllegalArgumentException("Unknown class " + (i < 0 ? cls1 : cls2));
+		}
+		scores.put(i * classes.size() + j, score);
+		scores.put(j * classes.size() + i, score);
+	}
+
+	/**
+	 *
+	 * @return the URIs of the classes, the index of a class is its position
+	 */
+	public List<String> getClasses() {
+		return Collections.unmodifiableList(classes);
+	}
+
+	/**
+	 *
+	 * @return identifies the knowledge base the scores are computed on
+	 */
+	public String getKnowledgeBase() {
+		return knowledgeBase;
+	}
+
+	/**
+	 *
+	 * @return the number of classes
+	 */
+	public int size() {
+		return classes.size();
+	}
+}
@@ -0,0 +1,143 @@
+package org.aksw.rex.consistency;
+
+import java.util.Map;
+
+/**
+ * The characteristics of a property which are needed to check the
+ * consistency of its triples: the characteristics declared in the knowledge
+ * base and the scores of learned axioms. A profile is computed once per
+ * property and reused for all triples, the scores of the functionality,
+ * domain and range axioms are learned only if they are needed.
+ * 
+ * @author Lorenz Buehmann
+ * 
+ */
+public class PropertyProfile {
+
+	private String property;
+	private boolean functional;
+	private boolean inverseFunctional;
+	private boolean asymmetric;
+	private boolean irreflexive;
+	// computed on demand, only for properties declared to be functional
+	private volatile Double functionalityScore;
+	// computed on demand, only for properties without declared domain resp. range
+	private volatile Map<String, Double> domainScores;
+	private volatile Map<String, Double> rangeScores;
+	private long created;
+
+	// for deserialization
+	PropertyProfile() {
+	}
+
+	/**
+	 * 
+	 * @param property
+	 *            URI of the property
+	 */
+	public PropertyProfile(String property) {
+		this.property = property;
+		this.created = System.currentTimeMillis();
+	}
+
+	public String getProperty() {
+		return property;
+	}
+
+	/**
+	 * @return whether the property is declared to be functional
+	 */
+	public boolean isFunctional() {
+		return functional;
+	}
+
+	public void setFunctional(boolean functional) {
+		this.functional = functional;
+	}
+
+	/**
+	 * @return whether the property is declared to be inverse functional
+	 */
+	public boolean isInverseFunctional() {
+		return inverseFunctional;
+	}
+
+	public void setInverseFunctional(boolean inverseFunctional) {
+		this.inverseFunctional = inverseFunctional;
+	}
+
+	/**
+	 * @return whether the property is declared to be asymmetric
+	 */
+	public boolean isAsymmetric() {
+		return asymmetric;
+	}
+
+	public void setAsymmetric(boolean asymmetric) {
+		this.asymmetric = asymmetric;
+	}
+
+	/**
+	 * @return whether the property is declared to be irreflexive
+	 */
+	public boolean isIrreflexive() {
+		return irreflexive;
+	}
+
+	public void setIrreflexive(boolean irreflexive) {
+		this.irreflexive = irreflexive;
+	}
+
+	/**
+	 * @return the accuracy of the learned functionality axiom, -1 if no axiom
+	 *         was learned, null if it was not computed yet
+	 */
+	public Double getFunctionalityScore() {
+		return functionalityScore;
+	}
+
+	public void setFunctionalityScore(Double functionalityScore) {
+		this.functionalityScore = functionalityScore;
+	}
+
+	/**
+	 * @return the URIs of the classes of the learned domain axioms with their
+	 *         accuracy, null if they were not computed yet
+	 */
+	public Map<String, Double> getDomainScores() {
+		return domainScores;
+	}
+
+	public void setDomainScores(Map<String, Double> domainScores) {
+		this.domainScores = domainScores;
+	}
+
+	/**
+	 * @return the URIs of the classes of the learned range axioms with their
+	 *         accuracy, null if they were not computed yet
+	 */
+	public Map<String, Double> getRangeScores() {
+		return rangeScores;
+	}
+
+	public void setRangeScores(Map<String, Double> rangeScores) {
+		this.rangeScores = rangeScores;
+	}
+
+	/**
+	 * @return time in milliseconds when the profile was computed
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return property + " [functional=" + functional + ", inverseFunctional=" + inverseFunctional + ", asymmetric=" + asymmetric + ", irreflexive=" + irreflexive + ", functionalityScore=" + functionalityScore + ", domainScores=" + domainScores + ", rangeScores=" + rangeScores + "]";
+	}
+}
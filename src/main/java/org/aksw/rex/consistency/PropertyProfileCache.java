@@ -0,0 +1,153 @@
+package org.aksw.rex.consistency;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.dllearner.core.owl.ObjectProperty;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Caches the profiles of properties in memory and in a JSON file, such that
+ * a profile is computed at most once per time to live, also across runs. The
+ * profiles depend on the knowledge base, i.e. each knowledge base needs its
+ * own file.
+ * 
+ * @author Lorenz Buehmann
+ * 
+ */
+public class PropertyProfileCache {
+
+	private static final Logger logger = Logger.getLogger(PropertyProfileCache.class.getName());
+
+	private final File file;
+	private final long timeToLiveMillis;
+	private final Map<String, PropertyProfile> persistedProfiles = new ConcurrentHashMap<String, PropertyProfile>();
+	private final LoadingCache<ObjectProperty, PropertyProfile> cache;
+
+	/**
+	 * 
+	 * @param file
+	 *            JSON file the profiles are stored in, null if the profiles
+	 *            should not be persisted
+	 * @param timeToLiveMillis
+	 *            time after which a profile is computed again
+	 * @param loader
+	 *            computes the profile of a property
+	 */
+	public PropertyProfileCache(File file, long timeToLiveMillis, final CacheLoader<ObjectProperty, PropertyProfile> loader) {
+		this.file = file;
+		this.timeToLiveMillis = timeToLiveMillis;
+		load();
+		cache = CacheBuilder.newBuilder().expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS).build(new CacheLoader<ObjectProperty, PropertyProfile>() {
+			@Override
+			public PropertyProfile load(ObjectProperty property) throws Exception {
+				PropertyProfile profile = persistedProfiles.get(property.getName());
+				if (profile != null && !isExpired(profile)) {
+					return profile;
+				}
+				profile = loader.load(property);
+				logger.debug("Computed profile " + profile);
+				persistedProfiles.put(property.getName(), profile);
+				save();
+				return profile;
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param property
+	 * @return the profile of the property, computed if there is none or it
+	 *         is expired
+	 * @throws UncheckedExecutionException
+	 *             if the profile could not be computed
+	 */
+	public PropertyProfile get(ObjectProperty property) {
+		return cache.getUnchecked(property);
+	}
+
+	/**
+	 * stores the changes of a profile returned by {@link #get(ObjectProperty)}
+	 * 
+	 * @param profile
+	 */
+	public void update(PropertyProfile profile) {
+		persistedProfiles.put(profile.getProperty(), profile);
+		save();
+	}
+
+	private boolean isExpired(PropertyProfile profile) {
+		return System.currentTimeMillis() - profile.getCreated() > timeToLiveMillis;
+	}
+
+	private void load() {
+		if (file == null || !file.exists()) {
+			return;
+		}
+		Reader reader = null;
+		try {
+			reader = new FileReader(file);
+			Type type = new TypeToken<List<PropertyProfile>>() {
+			}.getType();
+			List<PropertyProfile> profiles = new Gson().fromJson(reader, type);
+			if (profiles != null) {
+				for (PropertyProfile profile : profiles) {
+					if (!isExpired(profile)) {
+						persistedProfiles.put(profile.getProperty(), profile);
+					}
+				}
+			}
+			logger.info("Loaded " + persistedProfiles.size() + " property profiles from " + file);
+		} catch (Exception e) {
+			logger.error("Could not load property profiles from " + file, e);
+		} finally {
+			close(reader);
+		}
+	}
+
+	private synchronized void save() {
+		if (file == null) {
+			return;
+		}
+		Writer writer = null;
+		try {
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			writer = new FileWriter(file);
+			new Gson().toJson(new ArrayList<PropertyProfile>(persistedProfiles.values()), writer);
+		} catch (IOException e) {
+			logger.error("Could not store property profiles in " + file, e);
+		} finally {
+			close(writer);
+		}
+	}
+
+	private void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.error(e.getLocalizedMessage(), e);
+			}
+		}
+	}
+}
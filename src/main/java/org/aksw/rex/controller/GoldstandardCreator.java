@@ -5,21 +5,20 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.aksw.rex.controller.dao.PropertyXPathSupplier;
 import org.aksw.rex.controller.dao.PropertyXPathSupplierAKSW;
 import org.aksw.rex.controller.dao.RexPropertiesWithGoldstandard;
 import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.CrawlIndexCursor;
+import org.aksw.rex.crawler.DOMCache;
 import org.aksw.rex.util.Pair;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.aksw.rex.xpath.XPathRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -55,19 +54,18 @@ public class GoldstandardCreator {
 		for (CrawlIndex index : indizes) {
 			for (PropertyXPathSupplier x : ps) {
 				BufferedWriter bw = new BufferedWriter(new FileWriter(index.getName().replace("/", "") + "_" + x.getClass().getCanonicalName() + ".nt"));
-				for (int j = 0; j < index.size(); ++j) {
-					ArrayList<Pair<String, String>> d = index.getDocument(j);
-					String url = d.get(0).getLeft();
+				CrawlIndexCursor cursor = index.cursor();
+				while (cursor.hasNext()) {
+					Pair<String, String> d = cursor.next();
+					String url = d.getLeft();
 					for (RexPropertiesWithGoldstandard p : x.getPropertiesToCheck()) {
 						String domain = p.getExtractionDomainURL();
 						if (url.startsWith(domain)) {
 							String xpath = p.getXpath();
 							try {
-								String html = d.get(0).getRight();
-								XPathFactory factory = XPathFactory.newInstance();
-								XPath xpathExpression = factory.newXPath();
-								Document doc = Jsoup.parse(html);
-								NodeList nodeList = (NodeList) xpathExpression.evaluate(xpath, org.aksw.rex.crawler.DOMBuilder.jsoup2DOM(doc), XPathConstants.NODESET);
+								String html = d.getRight();
+								Document doc = DOMCache.getInstance().getDocument(url, html);
+								NodeList nodeList = XPathRegistry.evaluate(xpath, doc);
 								for (int i = 0; i < nodeList.getLength(); ++i) {
 									Node item = nodeList.item(i);
 									bw.write("<" + url + ">\t<" + p.getPropertyURL() + ">\t" + item + ".\n");
@@ -80,6 +78,7 @@ public class GoldstandardCreator {
 				}
 				bw.close();
 			}
+			DOMCache.getInstance().logStats();
 			index.close();
 		}
 	}
@@ -13,7 +13,6 @@ import org.aksw.rex.domainidentifier.DomainIdentifier;
 import org.aksw.rex.domainidentifier.ManualDomainIdentifier;
 import org.aksw.rex.examplegenerator.ExampleGenerator;
 import org.aksw.rex.examplegenerator.SimpleExampleGenerator;
-import org.aksw.rex.uris.URIGenerator;
 import org.aksw.rex.uris.URIGeneratorAGDISTIS;
 import org.aksw.rex.xpath.XPathLearner;
 import org.aksw.rex.xpath.alfred.ALFREDXPathLearner;
@@ -68,7 +67,7 @@ public class REX_Evaluation {
 				// endpoint);
 				xPathLearner.setUseExactMatch(false);
 
-				URIGenerator uriGenerator = new URIGeneratorAGDISTIS();
+				URIGeneratorAGDISTIS uriGenerator = new URIGeneratorAGDISTIS();
 
 				// ConsistencyCheckerImpl c = new
 				// ConsistencyCheckerImpl(endpoint);
@@ -77,7 +76,12 @@ public class REX_Evaluation {
 				String namespace = "http://dbpedia.org/ontology/";
 				ConsistencyChecker c = new ConsistencyCheckerImpl(endpoint, namespace);
 
-				Set<Quadruple<Node, Node, Node, String>> quads = new RexController(property, exampleGenerator, domainIdentifier, xPathLearner, uriGenerator, c, endpoint).run(ds.subjectRule, ds.objectRule);
+				Set<Quadruple<Node, Node, Node, String>> quads;
+				try {
+					quads = new RexController(property, exampleGenerator, domainIdentifier, xPathLearner, uriGenerator, c, endpoint).run(ds.subjectRule, ds.objectRule);
+				} finally {
+					uriGenerator.close();
+				}
 				BufferedWriter bw = new BufferedWriter(new FileWriter("ESWCFiles/" + domain.toExternalForm().replaceAll("//", "").replaceAll("/", "") + ".txt"));
 				for (Quadruple<Node, Node, Node, String> q : quads) {
 					bw.write("<" + q.first.getURI() + "> <" + q.second().getURI() + "> <" + q.third().getURI() + "> <" + q.fourth() + ">.\n");
@@ -23,7 +23,9 @@ import org.aksw.rex.results.ExtractionResult;
 import org.aksw.rex.uris.URIGenerator;
 import org.aksw.rex.uris.URIGeneratorAGDISTIS;
 import org.aksw.rex.util.Pair;
+import org.aksw.rex.util.SurfaceFormGenerator;
 import org.aksw.rex.xpath.XPathLearner;
+import org.aksw.rex.xpath.XPathRuleRanker;
 import org.aksw.rex.xpath.alfred.ALFREDXPathLearner;
 import org.dllearner.kb.sparql.SparqlEndpoint;
 import org.slf4j.Logger;
@@ -104,12 +106,17 @@ public class RexController {
 
         // The URIGenerator is based on the AGDISTIS web service which will generate for a pair of s,o XPATH strings
         // corresponding URIs from the knowledge base or new URIs if there are no to be found
-        URIGenerator uriGenerator = new URIGeneratorAGDISTIS();
+        URIGeneratorAGDISTIS uriGenerator = new URIGeneratorAGDISTIS();
 
         // After initialising the REX Controller with instances of components needed for our pipeline you can run the
         // controller and see the results in the returned set of quadruples (provenance)
-        Set<Quadruple<Node, Node, Node, String>> quadruples = new RexController(property, exampleGenerator,
-                domainIdentifier, xPathLearner, uriGenerator, new ConsistencyCheckerImpl(endpoint), endpoint).run();
+        Set<Quadruple<Node, Node, Node, String>> quadruples;
+        try {
+            quadruples = new RexController(property, exampleGenerator, domainIdentifier, xPathLearner, uriGenerator,
+                    new ConsistencyCheckerImpl(endpoint), endpoint).run();
+        } finally {
+            uriGenerator.close();
+        }
         log.info("{} triples found", quadruples.size());
         Path file = Paths.get("output.quad");
         log.info("file: {}", file.toUri());
@@ -156,12 +163,13 @@ public class RexController {
         log.info("get XPathExpressions DONE");
 
         if (!extractionRules.isEmpty()) {
-            // currently, we assume that the best rule is the first one in the
-            // list, thus we
-            extractionRules = extractionRules.subList(0, 1);
-            System.out.println("Top rule:\n" + extractionRules);
+            // rank the rules by the examples they reproduce and keep the best ones
+            XPathRuleRanker ranker = new XPathRuleRanker(xpath.getIndex(), SurfaceFormGenerator.getInstance(endpoint,
+                    "sparql-cache"), endpoint);
+            extractionRules = ranker.rank(extractionRules, posExamples, domain, topNRules);
+            log.info("Top rules: {}", extractionRules);
 
-            // extract results from the corpus
+            // extract results from the corpus, all rules are applied to each page in one pass
             Set<ExtractionResult> results = xpath.getExtractionResults(extractionRules, domain);
 
             // triple generation
@@ -178,6 +186,14 @@ public class RexController {
         return quads;
     }
 
+    /**
+     * @param topNRules
+     *            number of best ranked rules applied to the corpus
+     */
+    public void setTopNRules(int topNRules) {
+        this.topNRules = topNRules;
+    }
+
     /**
      * util function to convert triples to quadruples
      * 
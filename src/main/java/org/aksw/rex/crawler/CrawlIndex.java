@@ -4,9 +4,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
 
 import model.Page;
 
@@ -15,30 +21,41 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.CompressionTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Version;
 import org.jsoup.Jsoup;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
- * Lucene index to provide crawled data to REX
+ * Lucene index to provide crawled data to REX. Readers are near-real-time
+ * searchers obtained from the {@link IndexWriter} via a
+ * {@link SearcherManager}, i.e. documents added during a crawl become visible
+ * to the search methods after the next refresh without reopening the index.
+ * All methods are safe to be used concurrently by several threads.
  * 
  * @author r.usbeck
  * 
@@ -46,14 +63,31 @@ import org.slf4j.LoggerFactory;
 public class CrawlIndex {
 	private org.slf4j.Logger log = LoggerFactory.getLogger(CrawlIndex.class);
 	public static final String TSV = "TSV";
-	private String FIELD_NAME_URL = "url";
-	private String FIELD_NAME_HTML = "html";
-	private String FIELD_NAME_CONTENT = "content";
+	/**
+	 * default interval between two refreshes of the near-real-time searcher
+	 */
+	public static final long DEFAULT_REFRESH_INTERVAL_IN_MILLIS = 1000;
+	/**
+	 * default number of documents a {@link CrawlIndexCursor} decodes ahead
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1;
+	/**
+	 * default size of the RAM buffer of the index writer before documents are
+	 * flushed to a new segment
+	 */
+	public static final double DEFAULT_RAM_BUFFER_SIZE_MB = 64;
+	/**
+	 * number of hits fetched per page when paging through scored results
+	 */
+	private static final int PAGE_SIZE = 1000;
+	static final String FIELD_NAME_URL = "url";
+	static final String FIELD_NAME_HTML = "html";
+	static final String FIELD_NAME_CONTENT = "content";
 	private Directory directory;
 	private Analyzer analyzer;
-	private IndexSearcher isearcher;
-	private DirectoryReader ireader;
 	private IndexWriter iwriter;
+	private SearcherManager searcherManager;
+	private ScheduledExecutorService refresher;
 	private String name;
 
 	/**
@@ -62,6 +96,35 @@ public class CrawlIndex {
 	 * @param file
 	 */
 	public CrawlIndex(String file) {
+		this(file, DEFAULT_REFRESH_INTERVAL_IN_MILLIS);
+	}
+
+	/**
+	 * constructor creates or opens an already existing index and refreshes
+	 * the searcher periodically
+	 * 
+	 * @param file
+	 * @param refreshIntervalInMillis
+	 *            interval between two refreshes of the near-real-time
+	 *            searcher, a value <= 0 disables the periodic refresh
+	 */
+	public CrawlIndex(String file, long refreshIntervalInMillis) {
+		this(file, refreshIntervalInMillis, DEFAULT_RAM_BUFFER_SIZE_MB);
+	}
+
+	/**
+	 * constructor creates or opens an already existing index with a writer
+	 * tuned for bulk indexing
+	 * 
+	 * @param file
+	 * @param refreshIntervalInMillis
+	 *            interval between two refreshes of the near-real-time
+	 *            searcher, a value <= 0 disables the periodic refresh
+	 * @param ramBufferSizeMB
+	 *            RAM used for buffering added documents before they are
+	 *            flushed to a segment
+	 */
+	public CrawlIndex(String file, long refreshIntervalInMillis, double ramBufferSizeMB) {
 		this.name = file;
 		log.info("Building CrawlIndex!");
 		try {
@@ -69,32 +132,82 @@ public class CrawlIndex {
 			analyzer = new StandardAnalyzer(luceneVersion);
 			File indexDirectory = new File(file);
 
-			if (indexDirectory.exists() && indexDirectory.isDirectory() && indexDirectory.listFiles().length > 0) {
-				directory = new MMapDirectory(indexDirectory);
-				IndexWriterConfig config = new IndexWriterConfig(luceneVersion, analyzer);
-				iwriter = new IndexWriter(directory, config);
-			} else {
+			if (!indexDirectory.exists()) {
 				indexDirectory.mkdir();
-				directory = new MMapDirectory(indexDirectory);
-				IndexWriterConfig config = new IndexWriterConfig(luceneVersion, analyzer);
-				iwriter = new IndexWriter(directory, config);
 			}
+			directory = new MMapDirectory(indexDirectory);
+			IndexWriterConfig config = new IndexWriterConfig(luceneVersion, analyzer);
+			config.setRAMBufferSizeMB(ramBufferSizeMB);
+			config.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+			TieredMergePolicy mergePolicy = new TieredMergePolicy();
+			mergePolicy.setSegmentsPerTier(20);
+			mergePolicy.setMaxMergeAtOnce(20);
+			config.setMergePolicy(mergePolicy);
+			iwriter = new IndexWriter(directory, config);
 			iwriter.commit();
+			searcherManager = new SearcherManager(iwriter, true, null);
 		} catch (IOException e) {
 			e.printStackTrace();
 			log.error(e.getLocalizedMessage());
 			log.error("ERROR while building index");
 		}
+		if (refreshIntervalInMillis > 0) {
+			refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("crawl-index-refresher-%d").build());
+			refresher.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						searcherManager.maybeRefresh();
+					} catch (Exception e) {
+						log.error("Could not refresh searcher of index " + name + ": " + e.getLocalizedMessage());
+					}
+				}
+			}, refreshIntervalInMillis, refreshIntervalInMillis, TimeUnit.MILLISECONDS);
+		}
+		log.info("Done.");
 		try {
-			if (ireader == null) {
-				ireader = DirectoryReader.open(directory);
-				isearcher = new IndexSearcher(ireader);
+			log.info("Number of documents: " + size());
+		} catch (IOException e) {
+			log.error(e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * acquires the current searcher, which has to be released by
+	 * {@link #releaseSearcher(IndexSearcher)} afterwards
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	IndexSearcher acquireSearcher() throws IOException {
+		return searcherManager.acquire();
+	}
+
+	/**
+	 * releases a searcher obtained by {@link #acquireSearcher()}
+	 * 
+	 * @param searcher
+	 */
+	void releaseSearcher(IndexSearcher searcher) {
+		if (searcher != null) {
+			try {
+				searcherManager.release(searcher);
+			} catch (IOException e) {
+				log.error(e.getLocalizedMessage());
 			}
+		}
+	}
+
+	/**
+	 * makes all documents added so far visible to the search methods without
+	 * waiting for the next periodic refresh
+	 */
+	public void refresh() {
+		try {
+			searcherManager.maybeRefreshBlocking();
 		} catch (IOException e) {
-			e.printStackTrace();
+			log.error("Could not refresh searcher of index " + name + ": " + e.getLocalizedMessage());
 		}
-		log.info("Done.");
-		log.info("Number of documents: " + ireader.numDocs());
 	}
 
 	/**
@@ -105,59 +218,40 @@ public class CrawlIndex {
 	 */
 	public ArrayList<Pair<String, String>> searchURL(String queryString) {
 		ArrayList<Pair<String, String>> sites = new ArrayList<Pair<String, String>>();
+		IndexSearcher isearcher = null;
 		try {
-			if (ireader == null) {
-				ireader = DirectoryReader.open(directory);
-				isearcher = new IndexSearcher(ireader);
-			}
+			isearcher = acquireSearcher();
 			log.debug("\tStart asking index...");
-			TermQuery tq = new TermQuery(new Term(FIELD_NAME_URL, queryString));
-			BooleanQuery bq = new BooleanQuery();
-			bq.add(tq, BooleanClause.Occur.SHOULD);
-			TopScoreDocCollector collector = TopScoreDocCollector.create(1000, true);
-			isearcher.search(bq, collector);
-			ScoreDoc[] hits = collector.topDocs().scoreDocs;
-			for (int i = 0; i < hits.length; i++) {
-				Document hitDoc = isearcher.doc(hits[i].doc);
-				sites.add(new Pair<String, String>(hitDoc.get(FIELD_NAME_URL), hitDoc.get(FIELD_NAME_HTML)));
+			Query q = new ConstantScoreQuery(new TermQuery(new Term(FIELD_NAME_URL, queryString)));
+			for (int doc : collectAll(isearcher, q)) {
+				Document hitDoc = isearcher.doc(doc);
+				sites.add(toPair(hitDoc));
 			}
 		} catch (IOException e) {
 			log.error("COULD NOT SEARCH INDEX");
 		} catch (Exception e) {
 			log.error(e.getLocalizedMessage() + " -> " + queryString);
+		} finally {
+			releaseSearcher(isearcher);
 		}
 		return sites;
 	}
 
 	/**
-	 * searches in the HTML field of the index for the queryString
+	 * searches in the plain text of the HTML documents of the index for the
+	 * queryString
 	 * 
 	 * @param queryString
 	 * @return pairs of (URL, HTML)
 	 */
 	public ArrayList<Pair<String, String>> searchHTML(String queryString) {
 		ArrayList<Pair<String, String>> sites = new ArrayList<Pair<String, String>>();
+		IndexSearcher isearcher = null;
 		try {
-			if (ireader == null) {
-				ireader = DirectoryReader.open(directory);
-				isearcher = new IndexSearcher(ireader);
-			}
+			isearcher = acquireSearcher();
 			log.debug("\tRetrieving documents from index...");
-
-			BooleanQuery bq = new BooleanQuery();
-			TokenStream stream = analyzer.tokenStream(FIELD_NAME_HTML, new StringReader(queryString));
-			stream.reset();
-			while (stream.incrementToken()) {
-				TermQuery tq = new TermQuery(new Term(FIELD_NAME_HTML, stream.getAttribute(CharTermAttribute.class).toString()));
-				bq.add(tq, BooleanClause.Occur.MUST);
-			}
-
-			TopScoreDocCollector collector = TopScoreDocCollector.create(1000, true);
-			isearcher.search(bq, collector);
-			ScoreDoc[] hits = collector.topDocs().scoreDocs;
-			for (int i = 0; i < hits.length; i++) {
-				Document hitDoc = isearcher.doc(hits[i].doc);
-				sites.add(new Pair<String, String>(hitDoc.get(FIELD_NAME_URL), hitDoc.get(FIELD_NAME_HTML)));
+			for (int doc : searchContent(isearcher, queryString)) {
+				sites.add(toPair(isearcher.doc(doc)));
 			}
 			log.debug("\t...got " + sites.size() + " documents.");
 		} catch (IOException e) {
@@ -168,34 +262,97 @@ public class CrawlIndex {
 			e.printStackTrace();
 			log.error(e.getMessage());
 			log.error(e.getLocalizedMessage() + " -> " + queryString);
+		} finally {
+			releaseSearcher(isearcher);
 		}
 		return sites;
 	}
 
+	/**
+	 * like {@link #searchHTML(String)}, but without loading the HTML of the
+	 * matching documents
+	 * 
+	 * @param queryString
+	 * @return the URLs of the matching documents
+	 */
+	public ArrayList<String> searchHTMLForURLs(String queryString) {
+		ArrayList<String> urls = new ArrayList<String>();
+		IndexSearcher isearcher = null;
+		try {
+			isearcher = acquireSearcher();
+			Set<String> fields = Collections.singleton(FIELD_NAME_URL);
+			for (int doc : searchContent(isearcher, queryString)) {
+				urls.add(isearcher.doc(doc, fields).get(FIELD_NAME_URL));
+			}
+		} catch (IOException e) {
+			log.error("COULD NOT SEARCH INDEX");
+		} catch (Exception e) {
+			log.error(e.getLocalizedMessage() + " -> " + queryString);
+		} finally {
+			releaseSearcher(isearcher);
+		}
+		return urls;
+	}
+
+	/**
+	 * 
+	 * @param isearcher
+	 * @param queryString
+	 * @return ids of the documents containing all terms of the queryString in
+	 *         their plain text, in order of their score
+	 * @throws IOException
+	 */
+	private List<Integer> searchContent(IndexSearcher isearcher, String queryString) throws IOException {
+		BooleanQuery bq = new BooleanQuery();
+		TokenStream stream = analyzer.tokenStream(FIELD_NAME_CONTENT, new StringReader(queryString));
+		try {
+			stream.reset();
+			while (stream.incrementToken()) {
+				TermQuery tq = new TermQuery(new Term(FIELD_NAME_CONTENT, stream.getAttribute(CharTermAttribute.class).toString()));
+				bq.add(tq, BooleanClause.Occur.MUST);
+			}
+			stream.end();
+		} finally {
+			stream.close();
+		}
+
+		// page through all hits in order of their score
+		List<Integer> docs = new ArrayList<Integer>();
+		ScoreDoc after = null;
+		ScoreDoc[] hits;
+		do {
+			hits = isearcher.searchAfter(after, bq, PAGE_SIZE).scoreDocs;
+			for (int i = 0; i < hits.length; i++) {
+				docs.add(hits[i].doc);
+			}
+			if (hits.length > 0) {
+				after = hits[hits.length - 1];
+			}
+		} while (hits.length == PAGE_SIZE);
+		return docs;
+	}
+
 	/**
 	 * @param domainURL
-	 * @return all pairs of (URL, HTML) under a given domain
+	 * @return all pairs of (URL, HTML) under a given domain. might be huge, use
+	 *         {@link #cursor(String, int)} to process them one by one.
 	 */
 	public List<Pair<String, String>> getDocumentsWithDomain(String domainURL) {
 		List<Pair<String, String>> sites = new ArrayList<Pair<String, String>>();
+		IndexSearcher isearcher = null;
 		try {
-			if (ireader == null) {
-				ireader = DirectoryReader.open(directory);
-				isearcher = new IndexSearcher(ireader);
-			}
+			isearcher = acquireSearcher();
 			log.debug("\tStart asking index...");
-			Query q = new PrefixQuery(new Term(FIELD_NAME_URL, domainURL));
-			TopScoreDocCollector collector = TopScoreDocCollector.create(1000, true);
-			isearcher.search(q, collector);
-			ScoreDoc[] hits = collector.topDocs().scoreDocs;
-			for (int i = 0; i < hits.length; i++) {
-				Document hitDoc = isearcher.doc(hits[i].doc);
-				sites.add(new Pair<String, String>(hitDoc.get(FIELD_NAME_URL), hitDoc.get(FIELD_NAME_HTML)));
+			for (int doc : collectAll(isearcher, domainQuery(domainURL))) {
+				Document hitDoc = isearcher.doc(doc);
+				sites.add(toPair(hitDoc));
 			}
 		} catch (IOException e) {
 			log.error("COULD NOT SEARCH INDEX");
 		} catch (Exception e) {
 			log.error(e.getLocalizedMessage() + " -> " + domainURL);
+		} finally {
+			releaseSearcher(isearcher);
 		}
 		return sites;
 	}
@@ -207,19 +364,18 @@ public class CrawlIndex {
 	 */
 	public ArrayList<Pair<String, String>> getDocument(int i) {
 		ArrayList<Pair<String, String>> sites = new ArrayList<Pair<String, String>>();
+		IndexSearcher isearcher = null;
 		try {
-			if (ireader == null) {
-				ireader = DirectoryReader.open(directory);
-				isearcher = new IndexSearcher(ireader);
-			}
-			// ireader.document(i);
-			Document hitDoc = ireader.document(i);
-			sites.add(new Pair<String, String>(hitDoc.get(FIELD_NAME_URL), hitDoc.get(FIELD_NAME_HTML)));
+			isearcher = acquireSearcher();
+			Document hitDoc = isearcher.doc(i);
+			sites.add(toPair(hitDoc));
 		} catch (IOException e) {
 			e.printStackTrace();
 			log.error("COULD NOT SEARCH INDEX");
 		} catch (Exception e) {
 			log.error("Could not find document: " + i);
+		} finally {
+			releaseSearcher(isearcher);
 		}
 		return sites;
 	}
@@ -231,33 +387,71 @@ public class CrawlIndex {
 	 * @param html
 	 */
 	public void addDocumentToIndex(String url, String html) {
+		try {
+			addDocument(createDocument(url, html));
+		} catch (IOException e) {
+			log.error(e.getLocalizedMessage());
+			log.error("\tURL:" + url);
+			log.error("\tHTML:" + html);
+		}
+	}
+
+	/**
+	 * adds an already built document to the index, used by the
+	 * {@link CrawlIndexBuilder} which builds documents in its own threads
+	 * 
+	 * @param doc
+	 * @throws IOException
+	 */
+	void addDocument(Document doc) throws IOException {
+		iwriter.addDocument(doc);
+	}
+
+	/**
+	 * commits all added documents to disk
+	 * 
+	 * @throws IOException
+	 */
+	public void commit() throws IOException {
+		iwriter.commit();
+	}
+
+	/**
+	 * builds the Lucene document for (URL, HTML). The HTML is parsed only once
+	 * to strip scripts and to extract the plain text. The URL is indexed as
+	 * single term with doc values, the cleaned HTML is stored compressed but
+	 * not indexed and only the plain text is analyzed for searching.
+	 * 
+	 * @param url
+	 * @param html
+	 * @return
+	 */
+	Document createDocument(String url, String html) {
 		Document doc = new Document();
 		org.jsoup.nodes.Document htmlDoc = Jsoup.parse(html);
 		htmlDoc.select("script, jscript").remove();
-		html = htmlDoc.html();
+		String cleanedHTML = htmlDoc.html();
 
 		doc.add(new StringField(FIELD_NAME_URL, url, Store.YES));
-		doc.add(new TextField(FIELD_NAME_HTML, html, Store.YES));
+		doc.add(new SortedDocValuesField(FIELD_NAME_URL, new BytesRef(url)));
+		doc.add(new StoredField(FIELD_NAME_HTML, CompressionTools.compressString(cleanedHTML)));
 		try {
-			doc.add(new TextField(FIELD_NAME_CONTENT, HTMLExtractor.getHTMLContent(html), Store.NO));
+			doc.add(new TextField(FIELD_NAME_CONTENT, HTMLExtractor.getHTMLContent(htmlDoc), Store.NO));
 		} catch (Exception e) {
-			doc.add(new TextField(FIELD_NAME_CONTENT, html, Store.NO));
-		}
-
-		try {
-			iwriter.addDocument(doc);
-		} catch (IOException e) {
-			log.error(e.getLocalizedMessage());
-			log.error("\tURL:" + url);
-			log.error("\tHTML:" + html);
+			doc.add(new TextField(FIELD_NAME_CONTENT, cleanedHTML, Store.NO));
 		}
+		return doc;
 	}
 
 	/**
 	 * close the index, important to prevent data loss after adding documents
 	 */
 	public void close() {
+		if (refresher != null) {
+			refresher.shutdownNow();
+		}
 		try {
+			searcherManager.close();
 			iwriter.close();
 			directory.close();
 		} catch (IOException e) {
@@ -271,11 +465,12 @@ public class CrawlIndex {
 	 * @throws IOException
 	 */
 	public int size() throws IOException {
-		if (ireader == null) {
-			ireader = DirectoryReader.open(directory);
-			isearcher = new IndexSearcher(ireader);
+		IndexSearcher isearcher = acquireSearcher();
+		try {
+			return isearcher.getIndexReader().numDocs();
+		} finally {
+			releaseSearcher(isearcher);
 		}
-		return ireader.numDocs();
 	}
 /**
  * 
@@ -287,21 +482,11 @@ public class CrawlIndex {
 
 	/**
 	 * 
-	 * @return all pages of the index. might be huge.
+	 * @return all pages of the index. might be huge, use {@link #cursor()} to
+	 *         process them one by one.
 	 */
 	public Set<Page> getAllPages() {
-		Set<Page> pages = new HashSet<Page>();
-		for (int i = 0; i < ireader.maxDoc(); i++) {
-			try {
-				Document doc = ireader.document(i);
-				String url = doc.get(FIELD_NAME_URL);
-				String html = doc.get(FIELD_NAME_HTML);
-				pages.add(new Page(html, null, url));
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-		return pages;
+		return getPages(Integer.MAX_VALUE);
 	}
 
 	/**
@@ -311,18 +496,106 @@ public class CrawlIndex {
 	 */
 	public Set<Page> getPages(int pageNumber) {
 		Set<Page> pages = new HashSet<Page>();
-		int maxPages = ireader.maxDoc() > pageNumber ? pageNumber : ireader.maxDoc();
-
-		for (int i = 0; i < maxPages; i++) {
-			try {
-				Document doc = ireader.document(i);
-				String url = doc.get(FIELD_NAME_URL);
-				String html = doc.get(FIELD_NAME_HTML);
-				pages.add(new Page(html, null, url));
-			} catch (IOException e) {
-				e.printStackTrace();
+		CrawlIndexCursor cursor = null;
+		try {
+			cursor = cursor();
+			Iterator<Page> iter = cursor.asPages();
+			while (iter.hasNext() && pages.size() < pageNumber) {
+				pages.add(iter.next());
+			}
+		} catch (IOException e) {
+			log.error("COULD NOT SEARCH INDEX");
+		} finally {
+			if (cursor != null) {
+				cursor.close();
 			}
 		}
 		return pages;
 	}
+
+	/**
+	 * 
+	 * @return a cursor over all documents of the index, which has to be closed
+	 *         if it is not consumed completely
+	 * @throws IOException
+	 */
+	public CrawlIndexCursor cursor() throws IOException {
+		return cursor(null, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * 
+	 * @param domainURL
+	 *            only documents whose URL starts with the domainURL are
+	 *            returned, might be null
+	 * @param batchSize
+	 *            number of documents decoded ahead
+	 * @return a cursor over the documents of the index, which has to be closed
+	 *         if it is not consumed completely
+	 * @throws IOException
+	 */
+	public CrawlIndexCursor cursor(String domainURL, int batchSize) throws IOException {
+		IndexSearcher isearcher = acquireSearcher();
+		try {
+			int[] docs = domainURL == null ? null : collectAll(isearcher, domainQuery(domainURL));
+			return new CrawlIndexCursor(this, isearcher, docs, batchSize);
+		} catch (IOException e) {
+			releaseSearcher(isearcher);
+			throw e;
+		} catch (RuntimeException e) {
+			releaseSearcher(isearcher);
+			throw e;
+		}
+	}
+
+	/**
+	 * 
+	 * @param domainURL
+	 * @return non-scoring query matching all documents under the given domain
+	 */
+	private Query domainQuery(String domainURL) {
+		return new ConstantScoreQuery(new PrefixQuery(new Term(FIELD_NAME_URL, domainURL)));
+	}
+
+	/**
+	 * 
+	 * @param isearcher
+	 * @param q
+	 * @return ascending ids of all documents matching the query
+	 * @throws IOException
+	 */
+	private int[] collectAll(IndexSearcher isearcher, Query q) throws IOException {
+		MatchingDocsCollector collector = new MatchingDocsCollector();
+		isearcher.search(q, collector);
+		log.debug("\t...matched " + collector.getTotalHits() + " documents.");
+		return collector.getDocs();
+	}
+
+	/**
+	 * 
+	 * @param doc
+	 * @return pair of (URL, HTML) stored in the given document
+	 */
+	Pair<String, String> toPair(Document doc) {
+		return new Pair<String, String>(doc.get(FIELD_NAME_URL), getHTML(doc));
+	}
+
+	/**
+	 * 
+	 * @param doc
+	 * @return the HTML stored in the given document, either compressed or as
+	 *         plain string by indexes built before the HTML was compressed
+	 */
+	private String getHTML(Document doc) {
+		BytesRef compressed = doc.getBinaryValue(FIELD_NAME_HTML);
+		if (compressed == null) {
+			return doc.get(FIELD_NAME_HTML);
+		}
+		try {
+			return CompressionTools.decompressString(compressed.bytes, compressed.offset, compressed.length);
+		} catch (DataFormatException e) {
+			log.error("Could not decompress HTML of " + doc.get(FIELD_NAME_URL));
+			return null;
+		}
+	}
 }
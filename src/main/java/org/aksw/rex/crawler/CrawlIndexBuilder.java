@@ -0,0 +1,385 @@
+package org.aksw.rex.crawler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.aksw.rex.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Bulk ingestion of pages into a {@link CrawlIndex}. Pages are put into a
+ * bounded queue and parsed by several worker threads, the index is committed
+ * periodically so that at most the pages of one commit interval are lost on a
+ * crash. Besides single pages, WARC files (optionally gzipped) and directories
+ * of HTML files can be ingested offline.
+ *
+ * Usage: start(), add(...) or ingest(...), finish().
+ *
+ * @author r.usbeck
+ *
+ */
+public class CrawlIndexBuilder {
+	private static Logger log = LoggerFactory.getLogger(CrawlIndexBuilder.class);
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+	public static final long DEFAULT_COMMIT_INTERVAL_IN_MILLIS = 60 * 1000;
+	private static final Pair<String, String> POISON = new Pair<String, String>(null, null);
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Pattern CHARSET = Pattern.compile("charset=[\"']?([\\w\\-]+)", Pattern.CASE_INSENSITIVE);
+
+	private CrawlIndex index;
+	private int numberOfWorkers;
+	private long commitIntervalInMillis;
+	private BlockingQueue<Pair<String, String>> queue;
+	private ExecutorService workers;
+	private ScheduledExecutorService committer;
+	private AtomicLong indexed = new AtomicLong();
+	private AtomicLong failed = new AtomicLong();
+	private long startTime;
+
+	/**
+	 *
+	 * @param index
+	 *            the index to add the pages to, best opened with a large RAM
+	 *            buffer and without periodic refresh
+	 */
+	public CrawlIndexBuilder(CrawlIndex index) {
+		this(index, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, DEFAULT_COMMIT_INTERVAL_IN_MILLIS);
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            the index to add the pages to
+	 * @param numberOfWorkers
+	 *            number of threads parsing pages
+	 * @param queueCapacity
+	 *            number of pages waiting for parsing before add() blocks
+	 * @param commitIntervalInMillis
+	 *            maximal time between two commits, a value <= 0 commits only
+	 *            on finish()
+	 */
+	public CrawlIndexBuilder(CrawlIndex index, int numberOfWorkers, int queueCapacity, long commitIntervalInMillis) {
+		this.index = index;
+		this.numberOfWorkers = Math.max(1, numberOfWorkers);
+		this.commitIntervalInMillis = commitIntervalInMillis;
+		this.queue = new ArrayBlockingQueue<Pair<String, String>>(Math.max(1, queueCapacity));
+	}
+
+	/**
+	 * starts the worker threads and the periodic commits
+	 */
+	public void start() {
+		startTime = System.currentTimeMillis();
+		workers = Executors.newFixedThreadPool(numberOfWorkers, new ThreadFactoryBuilder().setNameFormat("crawl-index-builder-%d").build());
+		for (int i = 0; i < numberOfWorkers; i++) {
+			workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			});
+		}
+		if (commitIntervalInMillis > 0) {
+			committer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("crawl-index-committer-%d").build());
+			committer.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					commit();
+				}
+			}, commitIntervalInMillis, commitIntervalInMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * queues a page for indexing, blocks while the queue is full
+	 *
+	 * @param url
+	 * @param html
+	 * @throws InterruptedException
+	 */
+	public void add(String url, String html) throws InterruptedException {
+		if (url == null || html == null) {
+			return;
+		}
+		queue.put(new Pair<String, String>(url, html));
+	}
+
+	/**
+	 * waits until all queued pages are indexed and commits the index
+	 *
+	 * @throws InterruptedException
+	 */
+	public void finish() throws InterruptedException {
+		for (int i = 0; i < numberOfWorkers; i++) {
+			queue.put(POISON);
+		}
+		workers.shutdown();
+		workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		if (committer != null) {
+			committer.shutdownNow();
+		}
+		commit();
+	}
+
+	/**
+	 *
+	 * @return number of pages added to the index so far
+	 */
+	public long getIndexedPages() {
+		return indexed.get();
+	}
+
+	/**
+	 *
+	 * @return indexed pages per second since start()
+	 */
+	public double getPagesPerSecond() {
+		long duration = System.currentTimeMillis() - startTime;
+		return duration > 0 ? indexed.get() * 1000d / duration : 0;
+	}
+
+	/**
+	 * ingests a WARC file, a gzipped WARC file or a directory of HTML files
+	 *
+	 * @param file
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void ingest(File file) throws IOException, InterruptedException {
+		if (file.isDirectory()) {
+			ingestDirectory(file);
+		} else if (file.getName().endsWith(".warc") || file.getName().endsWith(".warc.gz")) {
+			ingestWARC(file);
+		} else {
+			ingestHTMLFile(file);
+		}
+	}
+
+	/**
+	 * recursively ingests all HTML files of a directory, the file URI is used as
+	 * URL of a page
+	 *
+	 * @param directory
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void ingestDirectory(File directory) throws IOException, InterruptedException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File f : files) {
+			if (f.isDirectory()) {
+				ingestDirectory(f);
+			} else if (f.getName().endsWith(".html") || f.getName().endsWith(".htm")) {
+				ingestHTMLFile(f);
+			}
+		}
+	}
+
+	private void ingestHTMLFile(File file) throws IOException, InterruptedException {
+		add(file.toURI().toString(), Files.toString(file, UTF8));
+	}
+
+	/**
+	 * ingests the HTML responses of a WARC file, files ending with .gz are
+	 * decompressed on the fly
+	 *
+	 * @param warc
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void ingestWARC(File warc) throws IOException, InterruptedException {
+		InputStream in = new BufferedInputStream(new FileInputStream(warc), 1 << 16);
+		if (warc.getName().endsWith(".gz")) {
+			in = new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16);
+		}
+		try {
+			String line;
+			while ((line = readLine(in)) != null) {
+				if (!line.startsWith("WARC/")) {
+					continue;
+				}
+				String type = null;
+				String url = null;
+				long length = 0;
+				while ((line = readLine(in)) != null && !line.isEmpty()) {
+					int colon = line.indexOf(':');
+					if (colon < 0) {
+						continue;
+					}
+					String name = line.substring(0, colon).trim();
+					String value = line.substring(colon + 1).trim();
+					if (name.equalsIgnoreCase("WARC-Type")) {
+						type = value;
+					} else if (name.equalsIgnoreCase("WARC-Target-URI")) {
+						url = value;
+					} else if (name.equalsIgnoreCase("Content-Length")) {
+						length = Long.parseLong(value);
+					}
+				}
+				if ("response".equals(type) && url != null) {
+					addHTTPResponse(url, readBytes(in, length));
+				} else {
+					skipBytes(in, length);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void addHTTPResponse(String url, byte[] response) throws InterruptedException {
+		// split HTTP header and body
+		int bodyStart = -1;
+		for (int i = 0; i + 3 < response.length; i++) {
+			if (response[i] == '\r' && response[i + 1] == '\n' && response[i + 2] == '\r' && response[i + 3] == '\n') {
+				bodyStart = i + 4;
+				break;
+			}
+		}
+		if (bodyStart < 0) {
+			return;
+		}
+		String header = new String(response, 0, bodyStart, Charset.forName("ISO-8859-1"));
+		String contentType = null;
+		for (String line : header.split("\r\n")) {
+			if (line.toLowerCase().startsWith("content-type:")) {
+				contentType = line.substring("content-type:".length()).trim();
+			}
+		}
+		if (contentType == null || !contentType.toLowerCase().contains("html")) {
+			return;
+		}
+		Charset charset = UTF8;
+		Matcher m = CHARSET.matcher(contentType);
+		if (m.find()) {
+			try {
+				charset = Charset.forName(m.group(1));
+			} catch (Exception e) {
+				log.debug("Unknown charset " + m.group(1) + " of " + url);
+			}
+		}
+		add(url, new String(response, bodyStart, response.length - bodyStart, charset));
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1) {
+			if (b == '\n') {
+				break;
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		if (b == -1 && line.size() == 0) {
+			return null;
+		}
+		return new String(line.toByteArray(), UTF8);
+	}
+
+	private static byte[] readBytes(InputStream in, long length) throws IOException {
+		byte[] bytes = new byte[(int) length];
+		int read = 0;
+		while (read < bytes.length) {
+			int r = in.read(bytes, read, bytes.length - read);
+			if (r == -1) {
+				break;
+			}
+			read += r;
+		}
+		return bytes;
+	}
+
+	private static void skipBytes(InputStream in, long length) throws IOException {
+		while (length > 0) {
+			long skipped = in.skip(length);
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					return;
+				}
+				skipped = 1;
+			}
+			length -= skipped;
+		}
+	}
+
+	private void work() {
+		try {
+			while (true) {
+				Pair<String, String> page = queue.take();
+				if (page == POISON) {
+					return;
+				}
+				try {
+					index.addDocument(index.createDocument(page.getLeft(), page.getRight()));
+					long n = indexed.incrementAndGet();
+					if (n % 10000 == 0) {
+						log.info("Indexed " + n + " pages (" + (int) getPagesPerSecond() + " pages/sec)");
+					}
+				} catch (Exception e) {
+					failed.incrementAndGet();
+					log.error("Could not index " + page.getLeft() + ": " + e.getLocalizedMessage());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized void commit() {
+		try {
+			index.commit();
+			log.info("Committed " + indexed.get() + " pages, " + failed.get() + " failed (" + (int) getPagesPerSecond() + " pages/sec)");
+		} catch (IOException e) {
+			log.error("Could not commit index " + index.getName() + ": " + e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * builds an index offline from WARC files and directories of HTML files
+	 *
+	 * @param args
+	 *            index directory followed by the files to ingest
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("Usage: CrawlIndexBuilder <index> <warc file|html directory>...");
+			return;
+		}
+		CrawlIndex index = new CrawlIndex(args[0], 0, 512);
+		CrawlIndexBuilder builder = new CrawlIndexBuilder(index);
+		builder.start();
+		try {
+			for (int i = 1; i < args.length; i++) {
+				builder.ingest(new File(args[i]));
+			}
+		} finally {
+			builder.finish();
+		}
+		System.out.println("Indexed " + builder.getIndexedPages() + " pages (" + (int) builder.getPagesPerSecond() + " pages/sec)");
+		index.close();
+	}
+}
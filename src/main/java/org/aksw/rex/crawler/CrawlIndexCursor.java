@@ -0,0 +1,153 @@
+package org.aksw.rex.crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+import model.Page;
+
+import org.aksw.rex.util.Pair;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+
+/**
+ * Streams the documents of a {@link CrawlIndex} as pairs of (URL, HTML)
+ * instead of materializing them. Only batchSize documents are decoded ahead,
+ * deleted documents are skipped. The cursor runs either over all documents or
+ * over the documents matched by a query, and holds the searcher of the index
+ * until it is exhausted or closed.
+ *
+ * @author r.usbeck
+ *
+ */
+public class CrawlIndexCursor implements Iterator<Pair<String, String>>, Closeable {
+
+	private CrawlIndex index;
+	private IndexSearcher searcher;
+	private IndexReader reader;
+	private Bits liveDocs;
+	private int[] docs;
+	private int batchSize;
+	private int next = 0;
+	private LinkedList<Pair<String, String>> buffer = new LinkedList<Pair<String, String>>();
+	private boolean closed = false;
+
+	/**
+	 *
+	 * @param index
+	 * @param searcher
+	 *            searcher acquired from the index, released by the cursor
+	 * @param docs
+	 *            ascending document ids of the searcher to iterate, null for all
+	 *            documents
+	 * @param batchSize
+	 *            number of documents decoded ahead
+	 */
+	CrawlIndexCursor(CrawlIndex index, IndexSearcher searcher, int[] docs, int batchSize) {
+		this.index = index;
+		this.searcher = searcher;
+		this.reader = searcher.getIndexReader();
+		this.liveDocs = MultiFields.getLiveDocs(reader);
+		this.docs = docs;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		if (buffer.isEmpty() && !closed) {
+			fill();
+			if (buffer.isEmpty()) {
+				close();
+			}
+		}
+		return !buffer.isEmpty();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public Pair<String, String> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return buffer.removeFirst();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * releases the searcher held by this cursor
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			buffer.clear();
+			index.releaseSearcher(searcher);
+		}
+	}
+
+	/**
+	 *
+	 * @return the remaining documents of this cursor as pages
+	 */
+	public Iterator<Page> asPages() {
+		return new Iterator<Page>() {
+			@Override
+			public boolean hasNext() {
+				return CrawlIndexCursor.this.hasNext();
+			}
+
+			@Override
+			public Page next() {
+				Pair<String, String> document = CrawlIndexCursor.this.next();
+				return new Page(document.getRight(), null, document.getLeft());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private void fill() {
+		int doc = -1;
+		try {
+			int size = docs == null ? reader.maxDoc() : docs.length;
+			while (buffer.size() < batchSize && next < size) {
+				doc = docs == null ? next : docs[next];
+				next++;
+				if (liveDocs != null && !liveDocs.get(doc)) {
+					continue;
+				}
+				Document document = reader.document(doc);
+				buffer.add(index.toPair(document));
+			}
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException("Could not read document " + doc + " from index " + index.getName(), e);
+		}
+	}
+}
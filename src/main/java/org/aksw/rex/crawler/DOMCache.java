@@ -0,0 +1,171 @@
+package org.aksw.rex.crawler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * Cache of W3C DOMs of crawled pages keyed by the URL of the page, so that
+ * each page is parsed by Jsoup and converted to a W3C DOM only once per run
+ * and thread. The DOM implementation is not thread-safe, not even for reads,
+ * hence each thread has its own cache and a document is never handed to
+ * another thread. The size of the cache of each thread is bounded by the
+ * number of DOM nodes, given in the system property
+ * {@value #MAXIMUM_NODES_PROPERTY} for the shared instance. The cached
+ * documents must not be modified.
+ *
+ * @author r.usbeck
+ *
+ */
+public class DOMCache {
+	private static Logger log = LoggerFactory.getLogger(DOMCache.class);
+	public static final String MAXIMUM_NODES_PROPERTY = "rex.domcache.nodes";
+	/**
+	 * default maximum number of DOM nodes held by the cache of one thread
+	 */
+	public static final long DEFAULT_MAXIMUM_NODES = 200000;
+	private static DOMCache instance;
+
+	private final long maximumNodes;
+	private final ThreadLocal<Cache<String, Document>> caches = new ThreadLocal<Cache<String, Document>>();
+	private final ThreadLocal<Integer> generations = new ThreadLocal<Integer>();
+	// incremented by clear(), the caches of all threads are dropped on their next access
+	private final AtomicInteger generation = new AtomicInteger();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 *
+	 * @param maximumNodes
+	 *            maximum number of DOM nodes of all documents cached by one
+	 *            thread
+	 */
+	public DOMCache(long maximumNodes) {
+		this.maximumNodes = maximumNodes;
+	}
+
+	/**
+	 *
+	 * @return the cache shared by the XPath extraction and learning
+	 */
+	public static synchronized DOMCache getInstance() {
+		if (instance == null) {
+			long maximumNodes = DEFAULT_MAXIMUM_NODES;
+			String property = System.getProperty(MAXIMUM_NODES_PROPERTY);
+			if (property != null) {
+				try {
+					maximumNodes = Long.parseLong(property.trim());
+				} catch (NumberFormatException e) {
+					log.error("Invalid value " + property + " of " + MAXIMUM_NODES_PROPERTY + ", using " + DEFAULT_MAXIMUM_NODES);
+				}
+			}
+			instance = new DOMCache(maximumNodes);
+		}
+		return instance;
+	}
+
+	/**
+	 * returns the DOM of the page cached by the current thread or parses the
+	 * HTML if the page is not cached yet
+	 *
+	 * @param url
+	 *            the URL of the page, if null the HTML is parsed without
+	 *            caching
+	 * @param html
+	 * @return W3C DOM of the page, must only be used by the current thread
+	 */
+	public Document getDocument(String url, final String html) {
+		if (url == null) {
+			return parse(html);
+		}
+		Cache<String, Document> cache = getCache();
+		Document document = cache.getIfPresent(url);
+		if (document != null) {
+			hits.incrementAndGet();
+			return document;
+		}
+		misses.incrementAndGet();
+		try {
+			return cache.get(url, new Callable<Document>() {
+				@Override
+				public Document call() throws Exception {
+					return parse(html);
+				}
+			});
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Could not parse " + url, e.getCause());
+		}
+	}
+
+	private Cache<String, Document> getCache() {
+		Cache<String, Document> cache = caches.get();
+		if (cache == null || generations.get() != generation.get()) {
+			generations.set(generation.get());
+			cache = CacheBuilder.newBuilder().maximumWeight(maximumNodes).weigher(new Weigher<String, Document>() {
+				@Override
+				public int weigh(String url, Document document) {
+					return countNodes(document);
+				}
+			}).removalListener(new RemovalListener<String, Document>() {
+				@Override
+				public void onRemoval(RemovalNotification<String, Document> notification) {
+					if (notification.wasEvicted()) {
+						evictions.incrementAndGet();
+					}
+				}
+			}).build();
+			caches.set(cache);
+		}
+		return cache;
+	}
+
+	/**
+	 *
+	 * @return hit, miss and eviction counts of the caches of all threads
+	 */
+	public CacheStats stats() {
+		return new CacheStats(hits.get(), misses.get(), misses.get(), 0, 0, evictions.get());
+	}
+
+	/**
+	 * logs the statistics of the cache
+	 */
+	public void logStats() {
+		CacheStats stats = stats();
+		log.info("DOM cache: " + stats.hitCount() + " hits, " + stats.missCount() + " misses, " + stats.evictionCount() + " evictions, hit rate " + stats.hitRate());
+	}
+
+	/**
+	 * removes all documents from the caches of all threads
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+	}
+
+	private static Document parse(String html) {
+		return DOMBuilder.jsoup2DOM(Jsoup.parse(html));
+	}
+
+	private static int countNodes(Node node) {
+		int count = 1;
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			count += countNodes(child);
+		}
+		return count;
+	}
+}
@@ -21,8 +21,17 @@ public class HTMLExtractor {
 	 * @return
 	 */
 	public static String getHTMLContent(String html) {
-		Document document = Jsoup.parse(html);
+		return getHTMLContent(Jsoup.parse(html));
+	}
 
+	/**
+	 * Return the text content of an already parsed HTML document without tags
+	 * etc.
+	 * 
+	 * @param document
+	 * @return
+	 */
+	public static String getHTMLContent(Document document) {
 		StringBuilder sb = new StringBuilder();
 		// add title
 		sb.append(document.title());
@@ -0,0 +1,64 @@
+package org.aksw.rex.crawler;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * Collects the ids of all documents matching a query without computing scores
+ * and without any limit on the number of hits. Used for prefix and filter
+ * queries where the ranking is irrelevant.
+ * 
+ * @author r.usbeck
+ * 
+ */
+public class MatchingDocsCollector extends Collector {
+
+	private int docBase;
+	private int[] docs = new int[64];
+	private int size = 0;
+
+	@Override
+	public void setScorer(Scorer scorer) throws IOException {
+		// scores are not needed
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		if (size == docs.length) {
+			docs = Arrays.copyOf(docs, size * 2);
+		}
+		docs[size++] = docBase + doc;
+	}
+
+	@Override
+	public void setNextReader(AtomicReaderContext context) throws IOException {
+		docBase = context.docBase;
+	}
+
+	@Override
+	public boolean acceptsDocsOutOfOrder() {
+		return true;
+	}
+
+	/**
+	 * 
+	 * @return ascending ids of all collected documents
+	 */
+	public int[] getDocs() {
+		int[] result = Arrays.copyOf(docs, size);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * 
+	 * @return number of collected documents
+	 */
+	public int getTotalHits() {
+		return size;
+	}
+}
@@ -0,0 +1,239 @@
+package org.aksw.rex.examplegenerator;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
+import org.aksw.rex.util.Pair;
+import org.apache.log4j.Logger;
+
+import com.hp.hpl.jena.query.ParameterizedSparqlString;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * Streams all pairs (s,o) with (s p o) in the knowledge base ordered by
+ * subject and object. By default the pairs are retrieved with a single query
+ * whose result is read lazily, i.e. the endpoint sorts the extension of the
+ * property once. Endpoints with a row cap truncate such a result silently,
+ * hence the stream continues after the last pair read with keyset pages
+ * (each page starts after the last pair of the previous one), which costs one
+ * more query if the result was complete. With a positive page size only keyset
+ * pages are used. The pages avoid an OFFSET, but the order on STR(?s) STR(?o)
+ * cannot use an index, i.e. the endpoint still sorts the remaining extension
+ * for every page. Pairs with a subject or object which is not a URI resource
+ * are omitted. The stream can be resumed from a checkpoint.
+ *
+ * @author Lorenz Buehmann
+ *
+ */
+public class PositiveExampleStream implements Iterator<Pair<Resource, Resource>>, Closeable {
+
+	private static final Logger logger = Logger.getLogger(PositiveExampleStream.class.getName());
+	public static final int DEFAULT_PAGE_SIZE = 10000;
+	/**
+	 * page size to retrieve the pairs with a single streamed query
+	 */
+	public static final int SINGLE_QUERY = 0;
+
+	private QueryExecutionFactory qef;
+	private Property property;
+	private int pageSize;
+	// the single query is read, pages follow once its result is exhausted
+	private boolean streamed;
+	private QueryExecution streamExecution;
+	private ResultSet stream;
+	private List<Pair<Resource, Resource>> page = new ArrayList<Pair<Resource, Resource>>();
+	private int position = 0;
+	private boolean exhausted = false;
+	// last pair read from the endpoint, start of the next page
+	private Pair<String, String> lastRead;
+	// last pair returned to the consumer
+	private Pair<String, String> checkpoint;
+	private int pages = 0;
+	// rows read with the single query
+	private int streamedRows = 0;
+
+	/**
+	 *
+	 * @param qef
+	 * @param property
+	 * @param pageSize
+	 *            number of pairs retrieved with one query,
+	 *            {@link #SINGLE_QUERY} to stream them with a single query
+	 */
+	public PositiveExampleStream(QueryExecutionFactory qef, Property property, int pageSize) {
+		this(qef, property, pageSize, null);
+	}
+
+	/**
+	 *
+	 * @param qef
+	 * @param property
+	 * @param pageSize
+	 *            number of pairs retrieved with one query,
+	 *            {@link #SINGLE_QUERY} to stream them with a single query
+	 * @param checkpoint
+	 *            checkpoint of a previous stream, the stream continues with
+	 *            the pair after it, null to start from the beginning
+	 */
+	public PositiveExampleStream(QueryExecutionFactory qef, Property property, int pageSize, Pair<String, String> checkpoint) {
+		this.qef = qef;
+		this.property = property;
+		this.streamed = pageSize <= SINGLE_QUERY;
+		this.pageSize = streamed ? DEFAULT_PAGE_SIZE : pageSize;
+		this.lastRead = checkpoint;
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 *
+	 * @return URIs of the subject and object of the last returned pair, null
+	 *         if no pair was returned yet
+	 */
+	public Pair<String, String> getCheckpoint() {
+		return checkpoint;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (position >= page.size()) {
+			if (exhausted) {
+				return false;
+			}
+			if (streamed) {
+				readStream();
+			} else {
+				fetchPage();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Pair<Resource, Resource> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Pair<Resource, Resource> example = page.get(position++);
+		checkpoint = new Pair<String, String>(example.getLeft().getURI(), example.getRight().getURI());
+		return example;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		closeStream();
+		page.clear();
+		position = 0;
+		exhausted = true;
+	}
+
+	private void readStream() {
+		if (stream == null) {
+			streamExecution = qef.createQueryExecution(createQuery(0));
+			stream = streamExecution.execSelect();
+		}
+		page.clear();
+		position = 0;
+		while (page.isEmpty() && stream.hasNext()) {
+			streamedRows++;
+			Pair<Resource, Resource> example = read(stream.next());
+			if (example != null) {
+				page.add(example);
+			}
+		}
+		if (page.isEmpty()) {
+			closeStream();
+			streamed = false;
+			logger.debug("Single query: " + streamedRows + " triples");
+		}
+	}
+
+	private void closeStream() {
+		if (streamExecution != null) {
+			streamExecution.close();
+			streamExecution = null;
+			stream = null;
+		}
+	}
+
+	private void fetchPage() {
+		page.clear();
+		position = 0;
+		int rows = 0;
+		QueryExecution qe = qef.createQueryExecution(createQuery(pageSize));
+		try {
+			ResultSet rs = qe.execSelect();
+			while (rs.hasNext()) {
+				rows++;
+				Pair<Resource, Resource> example = read(rs.next());
+				if (example != null) {
+					page.add(example);
+				}
+			}
+		} finally {
+			qe.close();
+		}
+		pages++;
+		logger.debug("Page " + pages + ": " + rows + " triples");
+		if (rows < pageSize) {
+			exhausted = true;
+		}
+	}
+
+	/**
+	 * 
+	 * @param limit
+	 *            maximum number of pairs, 0 for all
+	 * @return query for the pairs after the last pair read
+	 */
+	private String createQuery(int limit) {
+		ParameterizedSparqlString query;
+		String order = " ORDER BY STR(?s) STR(?o)" + (limit > 0 ? " LIMIT " + limit : "");
+		if (lastRead == null) {
+			query = new ParameterizedSparqlString("SELECT ?s ?o WHERE {?s ?p ?o.}" + order);
+		} else {
+			query = new ParameterizedSparqlString("SELECT ?s ?o WHERE {?s ?p ?o. FILTER(STR(?s) > ?lastS || (STR(?s) = ?lastS && STR(?o) > ?lastO))}" + order);
+			query.setLiteral("lastS", lastRead.getLeft());
+			query.setLiteral("lastO", lastRead.getRight());
+		}
+		query.setIri("p", property.getURI());
+		return query.toString();
+	}
+
+	/**
+	 * 
+	 * @param qs
+	 * @return the pair of the solution, null if it is omitted
+	 */
+	private Pair<Resource, Resource> read(QuerySolution qs) {
+		lastRead = new Pair<String, String>(toString(qs, "s"), toString(qs, "o"));
+		if (!qs.get("s").isURIResource()) {
+			logger.warn("Omitting triple:Subject " + qs.get("s") + " is not a URI resource!");
+			return null;
+		}
+		if (!qs.get("o").isURIResource()) {
+			logger.warn("Omitting triple:Object " + qs.get("o") + " is not a URI resource!");
+			return null;
+		}
+		return new Pair<Resource, Resource>(qs.getResource("s"), qs.getResource("o"));
+	}
+
+	private String toString(QuerySolution qs, String var) {
+		if (qs.get(var).isLiteral()) {
+			return qs.getLiteral(var).getLexicalForm();
+		}
+		return qs.get(var).toString();
+	}
+}
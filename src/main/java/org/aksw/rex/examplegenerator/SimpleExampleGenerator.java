@@ -1,20 +1,13 @@
 package org.aksw.rex.examplegenerator;
 
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
-import org.aksw.jena_sparql_api.cache.core.QueryExecutionFactoryCacheEx;
-import org.aksw.jena_sparql_api.cache.extra.CacheBackend;
-import org.aksw.jena_sparql_api.cache.extra.CacheFrontend;
-import org.aksw.jena_sparql_api.cache.extra.CacheFrontendImpl;
-import org.aksw.jena_sparql_api.cache.h2.CacheCoreH2;
 import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
-import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
+import org.aksw.rex.util.KnowledgeBaseBackend;
 import org.aksw.rex.util.Pair;
 import org.apache.log4j.Logger;
 import org.dllearner.core.owl.NamedClass;
@@ -28,6 +21,7 @@ import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Property;
@@ -51,6 +45,29 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 	private QueryExecutionFactory qef;
 	private String cacheDirectory = "cache/sparql";
 	Random rnd = new Random(123);
+	private SamplingMode samplingMode = SamplingMode.OFFSET;
+	private int pageSize = PositiveExampleStream.SINGLE_QUERY;
+
+	/**
+	 * how random examples are drawn from the endpoint
+	 */
+	public enum SamplingMode {
+		/**
+		 * one query with a random OFFSET per sample, the default
+		 */
+		OFFSET,
+		/**
+		 * one query per sample set, ordered by the MD5 hash of the resources
+		 * salted with a value drawn from the seeded random generator, i.e. the
+		 * endpoint hashes the whole extension for each sample
+		 */
+		HASH,
+		/**
+		 * reservoir sampling over the (cached) stream of the whole property
+		 * extension, i.e. the whole extension is transferred once
+		 */
+		RESERVOIR
+	}
 
 	/*
 	 * (non-Javadoc) @see
@@ -61,22 +78,14 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 	public void setEndpoint(SparqlEndpoint endpoint) {
 		this.endpoint = endpoint;
 
-		qef = new QueryExecutionFactoryHttp(endpoint.getURL().toString(), endpoint.getDefaultGraphURIs());
-		if (cacheDirectory != null) {
-			try {
-				long timeToLive = TimeUnit.DAYS.toMillis(30);
-				CacheBackend cacheBackend = CacheCoreH2.create(cacheDirectory, timeToLive, true);
-				CacheFrontend cacheFrontend = new CacheFrontendImpl(cacheBackend);
-				qef = new QueryExecutionFactoryCacheEx(qef, cacheFrontend);
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
-			} catch (SQLException e) {
-				e.printStackTrace();
-			}
-		}
+		qef = KnowledgeBaseBackend.createQueryExecutionFactory(endpoint, cacheDirectory);
 		// qef = new QueryExecutionFactoryPaginated(qef, 10000);
 
-		reasoner = new SPARQLReasoner(new SparqlEndpointKS(endpoint), cacheDirectory);
+		if (KnowledgeBaseBackend.isLocal()) {
+			reasoner = new SPARQLReasoner(KnowledgeBaseBackend.createKnowledgeSource(endpoint));
+		} else {
+			reasoner = new SPARQLReasoner(new SparqlEndpointKS(endpoint), cacheDirectory);
+		}
 	}
 
 	/*
@@ -132,49 +141,113 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 		this.maxNrOfNegativeExamples = maxNrOfNegativeExamples;
 	}
 
+	/**
+	 * @param samplingMode
+	 *            how random positive and negative examples are drawn,
+	 *            {@link SamplingMode#OFFSET} by default
+	 */
+	public void setSamplingMode(SamplingMode samplingMode) {
+		this.samplingMode = samplingMode;
+	}
+
+	/**
+	 * @param pageSize
+	 *            number of positive examples retrieved with one query when
+	 *            all or the most prominent examples are retrieved,
+	 *            {@link PositiveExampleStream#SINGLE_QUERY} (the default) to
+	 *            retrieve them with a single streamed query
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = Math.max(PositiveExampleStream.SINGLE_QUERY, pageSize);
+	}
+
 	private Set<Pair<Resource, Resource>> getMostProminentPositiveExamples() {
-		int offset = 1000;
-		Set<Pair<Resource, Resource>> examples = new HashSet<Pair<Resource, Resource>>();
 		// String query = "SELECT ?s ?o WHERE {?s <" + property.getURI() +
 		// "> ?o. ?s_in ?p1 ?s. ?o_in ?p2 ?o.} "
 		// + "GROUP BY ?s ?o ORDER BY DESC(COUNT(?s_in)+COUNT(?o_in)) LIMIT " +
 		// maxNrOfPositiveExamples;
-		String query = "SELECT ?s ?o WHERE {" + "?s <" + property + "> ?o. }" + "ORDER BY DESC ( <LONG::IRI_RANK> (?o) + <LONG::IRI_RANK> (?s)) " + "LIMIT " + offset;
-		ResultSet rs;
-		QuerySolution qs;
-		Resource subject;
-		Resource object;
-		int count = 0;
-		while (examples.size() < maxNrOfPositiveExamples) {
-			rs = executeSelectQuery(query + " OFFSET " + count * offset);
-			// if we have reach the bottom of the result set table
-			if (!rs.hasNext())
-				return examples;
-			// else
-			while (rs.hasNext()) {
-				qs = rs.next();
-				if (qs.get("s").isURIResource()) {
-					subject = qs.getResource("s");
-				} else {
-					logger.warn("Omitting triple:Subject " + qs.get("s") + " is not a URI resource!");
-					continue;
-				}
-				if (qs.get("o").isURIResource()) {
-					object = qs.getResource("o");
-				} else {
-					logger.warn("Omitting triple:Object " + qs.get("o") + " is not a URI resource!");
-					continue;
-				}
-				examples.add(new Pair<Resource, Resource>(subject, object));
-				if (examples.size() == maxNrOfPositiveExamples) {
-					break;
+		return new HashSet<Pair<Resource, Resource>>(getRankedPositiveExamples(maxNrOfPositiveExamples));
+	}
+
+	/**
+	 * retrieves the positive examples ranked by the IRI_RANK of Virtuoso. By
+	 * default a single query is used, its result is continued with keyset pages
+	 * in case the endpoint truncated it (row cap). With a positive page size
+	 * only pages are used. Each page starts after the rank, subject and object
+	 * of the last pair of the previous page instead of using an OFFSET, but the
+	 * rank is computed, i.e. the endpoint ranks and sorts the remaining
+	 * extension for every page. Endpoints without IRI_RANK rank all pairs 0,
+	 * i.e. the pairs are ordered by subject and object only.
+	 * 
+	 * @param limit
+	 *            maximum number of examples
+	 * @return the examples in the order of their rank
+	 */
+	private List<Pair<Resource, Resource>> getRankedPositiveExamples(int limit) {
+		List<Pair<Resource, Resource>> examples = new ArrayList<Pair<Resource, Resource>>();
+		Literal lastRank = null;
+		String lastS = null;
+		String lastO = null;
+		int pages = 0;
+		boolean streamed = this.pageSize <= PositiveExampleStream.SINGLE_QUERY;
+		int pageSize = streamed ? PositiveExampleStream.DEFAULT_PAGE_SIZE : this.pageSize;
+		while (examples.size() < limit) {
+			int size = streamed ? limit - examples.size() : Math.min(pageSize, limit - examples.size());
+			String order = " ORDER BY DESC(?rank) STR(?s) STR(?o)" + (size < Integer.MAX_VALUE ? " LIMIT " + size : "");
+			ParameterizedSparqlString query;
+			String rank = "BIND(COALESCE(<LONG::IRI_RANK> (?o) + <LONG::IRI_RANK> (?s), 0) AS ?rank)";
+			if (lastRank == null) {
+				query = new ParameterizedSparqlString("SELECT ?s ?o ?rank WHERE {?s ?p ?o. " + rank + "}" + order);
+			} else {
+				query = new ParameterizedSparqlString("SELECT ?s ?o ?rank WHERE {?s ?p ?o. " + rank
+						+ " FILTER(?rank < ?lastRank || (?rank = ?lastRank && (STR(?s) > ?lastS || (STR(?s) = ?lastS && STR(?o) > ?lastO))))}" + order);
+				query.setLiteral("lastRank", lastRank);
+				query.setLiteral("lastS", lastS);
+				query.setLiteral("lastO", lastO);
+			}
+			query.setIri("p", property.getURI());
+			int rows = 0;
+			QueryExecution qe = qef.createQueryExecution(query.toString());
+			try {
+				ResultSet rs = qe.execSelect();
+				while (rs.hasNext()) {
+					QuerySolution qs = rs.next();
+					rows++;
+					lastRank = qs.getLiteral("rank");
+					lastS = toString(qs, "s");
+					lastO = toString(qs, "o");
+					if (!qs.get("s").isURIResource()) {
+						logger.warn("Omitting triple:Subject " + qs.get("s") + " is not a URI resource!");
+						continue;
+					}
+					if (!qs.get("o").isURIResource()) {
+						logger.warn("Omitting triple:Object " + qs.get("o") + " is not a URI resource!");
+						continue;
+					}
+					examples.add(new Pair<Resource, Resource>(qs.getResource("s"), qs.getResource("o")));
 				}
+			} finally {
+				qe.close();
+			}
+			logger.debug((streamed ? "Single query: " : "Page " + (++pages) + ": ") + rows + " triples");
+			if (streamed) {
+				// a row cap truncates the result silently, continue with pages
+				streamed = false;
+			} else if (rows < size) {
+				// the last page was incomplete
+				break;
 			}
-			count++;
 		}
 		return examples;
 	}
 
+	private String toString(QuerySolution qs, String var) {
+		if (qs.get(var).isLiteral()) {
+			return qs.getLiteral(var).getLexicalForm();
+		}
+		return qs.get(var).toString();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -183,49 +256,35 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 	 */
 	@Override
 	public Set<Pair<Resource, Resource>> getAllPositiveExamples() {
-		return new HashSet<Pair<Resource, Resource>>(getListOfPositiveExamples());
+		Set<Pair<Resource, Resource>> examples = new HashSet<Pair<Resource, Resource>>();
+		PositiveExampleStream stream = streamPositiveExamples(null);
+		try {
+			while (stream.hasNext()) {
+				examples.add(stream.next());
+			}
+		} finally {
+			stream.close();
+		}
+		return examples;
 	}
 
 	/**
 	 * 
-	 * @return 10000 positive examples ranked by prominence
+	 * @param checkpoint
+	 *            checkpoint of a previous stream to resume from, null to start
+	 *            from the beginning
+	 * @return stream over all positive examples, unranked
+	 */
+	public PositiveExampleStream streamPositiveExamples(Pair<String, String> checkpoint) {
+		return new PositiveExampleStream(qef, property, pageSize, checkpoint);
+	}
+
+	/**
+	 * 
+	 * @return all positive examples ranked by prominence
 	 */
 	public List<Pair<Resource, Resource>> getListOfPositiveExamples() {
-		int offsetSize = 10000;
-		List<Pair<Resource, Resource>> examples = new ArrayList<Pair<Resource, Resource>>();
-		// String query = "SELECT ?s ?o WHERE {?s <" + property.getURI() +
-		// "> ?o. ?s_in ?p1 ?s. ?o_in ?p2 ?o.} "
-		// + "GROUP BY ?s ?o ORDER BY DESC(COUNT(?s_in)+COUNT(?o_in)) LIMIT " +
-		// maxNrOfPositiveExamples;
-		String query = "SELECT ?s ?o WHERE {" + "SELECT ?s ?o WHERE {" + "?s <" + property + "> ?o. }" + "ORDER BY DESC ( <LONG::IRI_RANK> (?o) + <LONG::IRI_RANK> (?s)) " + "}" + "LIMIT " + offsetSize;
-		QuerySolution qs;
-		Resource subject;
-		Resource object;
-		for (int i = 0; i < 10000; i++) {
-			System.out.println(i);
-			ResultSet rs = executeSelectQuery(query + " OFFSET " + (i * offsetSize));
-			if (rs.hasNext()) {
-				while (rs.hasNext()) {
-					qs = rs.next();
-					if (qs.get("s").isURIResource()) {
-						subject = qs.getResource("s");
-					} else {
-						logger.warn("Omitting triple:Subject " + qs.get("s") + " is not a URI resource!");
-						continue;
-					}
-					if (qs.get("o").isURIResource()) {
-						object = qs.getResource("o");
-					} else {
-						logger.warn("Omitting triple:Object " + qs.get("o") + " is not a URI resource!");
-						continue;
-					}
-					examples.add(new Pair<Resource, Resource>(subject, object));
-				}
-			} else {
-				return examples;
-			}
-		}
-		return examples;
+		return getRankedPositiveExamples(Integer.MAX_VALUE);
 	}
 
 	/**
@@ -234,6 +293,11 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 	 *         vendor
 	 */
 	private Set<Pair<Resource, Resource>> getRandomPositiveExamples() {
+		if (samplingMode == SamplingMode.HASH) {
+			return new HashSet<Pair<Resource, Resource>>(getHashSampleOfPositiveExamples(maxNrOfPositiveExamples));
+		} else if (samplingMode == SamplingMode.RESERVOIR) {
+			return new HashSet<Pair<Resource, Resource>>(getReservoirSampleOfPositiveExamples(maxNrOfPositiveExamples));
+		}
 		Set<Pair<Resource, Resource>> examples = new HashSet<Pair<Resource, Resource>>();
 
 		ParameterizedSparqlString queryString = new ParameterizedSparqlString("SELECT ?s ?o WHERE {?s ?p ?o.}");
@@ -272,6 +336,121 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 		return examples;
 	}
 
+	/**
+	 * 
+	 * @param n
+	 * @return n random positive examples retrieved with one query
+	 */
+	private List<Pair<Resource, Resource>> getHashSampleOfPositiveExamples(int n) {
+		List<Pair<Resource, Resource>> examples = new ArrayList<Pair<Resource, Resource>>();
+		String query = "SELECT ?s ?o WHERE {?s <" + property + "> ?o. FILTER(isIRI(?s) && isIRI(?o))} " + "ORDER BY MD5(CONCAT(STR(?s), STR(?o), \"" + rnd.nextLong() + "\")) LIMIT " + n;
+		ResultSet rs = executeSelectQuery(query);
+		while (rs.hasNext()) {
+			QuerySolution qs = rs.next();
+			examples.add(new Pair<Resource, Resource>(qs.getResource("s"), qs.getResource("o")));
+		}
+		return examples;
+	}
+
+	/**
+	 * 
+	 * @param n
+	 * @return n random positive examples drawn locally from the stream of all
+	 *         positive examples
+	 */
+	private List<Pair<Resource, Resource>> getReservoirSampleOfPositiveExamples(int n) {
+		List<Pair<Resource, Resource>> reservoir = new ArrayList<Pair<Resource, Resource>>(n);
+		PositiveExampleStream stream = streamPositiveExamples(null);
+		try {
+			long seen = 0;
+			while (stream.hasNext()) {
+				Pair<Resource, Resource> example = stream.next();
+				seen++;
+				if (reservoir.size() < n) {
+					reservoir.add(example);
+				} else {
+					long j = (long) (rnd.nextDouble() * seen);
+					if (j < n) {
+						reservoir.set((int) j, example);
+					}
+				}
+			}
+		} finally {
+			stream.close();
+		}
+		return reservoir;
+	}
+
+	/**
+	 * 
+	 * @param cls
+	 * @param n
+	 * @return n random instances of the class retrieved with one query
+	 */
+	private List<Resource> getHashSampleOfInstances(Resource cls, int n) {
+		List<Resource> instances = new ArrayList<Resource>();
+		String query = "SELECT ?s WHERE {?s a <" + cls.getURI() + ">. FILTER(isIRI(?s))} " + "ORDER BY MD5(CONCAT(STR(?s), \"" + rnd.nextLong() + "\")) LIMIT " + n;
+		ResultSet rs = executeSelectQuery(query);
+		while (rs.hasNext()) {
+			instances.add(rs.next().getResource("s"));
+		}
+		return instances;
+	}
+
+	/**
+	 * 
+	 * @param candidates
+	 * @return the candidates which are not a triple of the property in the
+	 *         knowledge base, checked with one query
+	 */
+	private Set<Pair<Resource, Resource>> removePositiveExamples(Set<Pair<Resource, Resource>> candidates) {
+		Set<Pair<Resource, Resource>> examples = new HashSet<Pair<Resource, Resource>>(candidates);
+		if (candidates.isEmpty()) {
+			return examples;
+		}
+		StringBuilder query = new StringBuilder("SELECT ?s ?o WHERE {VALUES (?s ?o) {");
+		for (Pair<Resource, Resource> candidate : candidates) {
+			query.append(" (<").append(candidate.getLeft().getURI()).append("> <").append(candidate.getRight().getURI()).append(">)");
+		}
+		query.append("} ?s <").append(property).append("> ?o.}");
+		ResultSet rs = executeSelectQuery(query.toString());
+		while (rs.hasNext()) {
+			QuerySolution qs = rs.next();
+			examples.remove(new Pair<Resource, Resource>(qs.getResource("s"), qs.getResource("o")));
+		}
+		return examples;
+	}
+
+	/**
+	 * pairs the i-th subject with the i-th object
+	 * 
+	 * @param subjects
+	 * @param objects
+	 * @param limit
+	 * @return at most limit negative examples
+	 */
+	private Set<Pair<Resource, Resource>> getNegativeExamples(List<Resource> subjects, List<Resource> objects, int limit) {
+		Set<Pair<Resource, Resource>> candidates = new HashSet<Pair<Resource, Resource>>();
+		for (int i = 0; i < Math.min(subjects.size(), objects.size()); i++) {
+			candidates.add(new Pair<Resource, Resource>(subjects.get(i), objects.get(i)));
+		}
+		Set<Pair<Resource, Resource>> examples = new HashSet<Pair<Resource, Resource>>();
+		for (Pair<Resource, Resource> example : removePositiveExamples(candidates)) {
+			if (examples.size() == limit) {
+				break;
+			}
+			examples.add(example);
+		}
+		return examples;
+	}
+
+	private List<Pair<Resource, Resource>> getSampleOfPositiveExamples(int n) {
+		if (samplingMode == SamplingMode.RESERVOIR) {
+			return getReservoirSampleOfPositiveExamples(n);
+		}
+		return getHashSampleOfPositiveExamples(n);
+	}
+
 	/**
 	 * 
 	 * @return negative examples within the domain of the predicate
@@ -287,6 +466,16 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 			domain = rs.next().getResource("domain");
 		}
 
+		if (domain != null && samplingMode != SamplingMode.OFFSET) {
+			// draw twice as many candidates as needed, some of them might be
+			// positive examples
+			List<Resource> objects = new ArrayList<Resource>();
+			for (Pair<Resource, Resource> example : getSampleOfPositiveExamples(2 * limit)) {
+				objects.add(example.getRight());
+			}
+			return getNegativeExamples(getHashSampleOfInstances(domain, 2 * limit), objects, limit);
+		}
+
 		if (domain != null) {
 			// count triples with p
 			int propCnt = reasoner.getPopularity(new ObjectProperty(property.getURI()));
@@ -329,6 +518,14 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 			range = rs.next().getResource("range");
 		}
 
+		if (range != null && samplingMode != SamplingMode.OFFSET) {
+			List<Resource> subjects = new ArrayList<Resource>();
+			for (Pair<Resource, Resource> example : getSampleOfPositiveExamples(2 * limit)) {
+				subjects.add(example.getLeft());
+			}
+			return getNegativeExamples(subjects, getHashSampleOfInstances(range, 2 * limit), limit);
+		}
+
 		if (range != null) {
 			int innerOffset;
 			int outerOffset;
@@ -378,6 +575,9 @@ public class SimpleExampleGenerator implements ExampleGenerator {
 		if (rs.hasNext()) {
 			range = rs.next().getResource("range");
 		}
+		if (domain != null && range != null && samplingMode != SamplingMode.OFFSET) {
+			return getNegativeExamples(getHashSampleOfInstances(domain, 2 * limit), getHashSampleOfInstances(range, 2 * limit), limit);
+		}
 		if (domain != null && range != null) {
 			// count triples with p
 			int domainCnt = reasoner.getPopularity(new NamedClass(domain.getURI()));
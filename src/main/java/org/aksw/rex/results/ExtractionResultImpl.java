@@ -63,5 +63,42 @@ public class ExtractionResultImpl implements ExtractionResult {
 	public void setPageURL(String pageURL) {
 		this.pageURL = pageURL;
 	}
-    
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((subject == null) ? 0 : subject.hashCode());
+		result = prime * result + ((object == null) ? 0 : object.hashCode());
+		result = prime * result + ((pageURL == null) ? 0 : pageURL.hashCode());
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		ExtractionResultImpl other = (ExtractionResultImpl) obj;
+		return equal(subject, other.subject) && equal(object, other.object) && equal(pageURL, other.pageURL);
+	}
+
+	private static boolean equal(String s1, String s2) {
+		return s1 == null ? s2 == null : s1.equals(s2);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "(" + subject + ", " + object + ", " + pageURL + ")";
+	}
 }
@@ -1,19 +1,31 @@
 package org.aksw.rex.uris;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.util.EntityUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.hp.hpl.jena.graph.Node;
 
@@ -22,10 +34,64 @@ import edu.stanford.nlp.util.Quadruple;
 /**
  * URI Disambiguation using AGDISTIS https://github.com/AKSW/AGDISTIS
  * 
+ * All instances share one pool of keep-alive connections. The URL of the
+ * service is read from the system property {@value #URL_PROPERTY}. Failed
+ * requests are retried with exponential backoff. After
+ * {@link #setFailureThreshold(int)} calls in a row failed, further calls fail
+ * immediately until {@link #setOpenMillis(long)} have passed (circuit
+ * breaker), such that an unreachable service does not block each call for the
+ * whole timeout.
+ * 
  * @author r.usbeck
  * 
  */
 public class AGDISTISPost {
+	private static final Logger log = LoggerFactory.getLogger(AGDISTISPost.class);
+
+	public static final String URL_PROPERTY = "rex.agdistis.url";
+	public static final String DEFAULT_URL = "http://139.18.2.164:8080/AGDISTIS";
+
+	private static final HttpClient client = createClient();
+
+	private String url;
+	private int connectTimeout = 10000;
+	private int readTimeout = 60000;
+	private int maxRetries = 3;
+	private long backoffMillis = 500;
+	private int failureThreshold = 5;
+	private long openMillis = 30000;
+
+	// state of the circuit breaker
+	private int consecutiveFailures = 0;
+	private long openUntil = 0;
+
+	/**
+	 * uses the URL given in the system property {@value #URL_PROPERTY}, the
+	 * default AGDISTIS service if it is not set
+	 */
+	public AGDISTISPost() {
+		this(System.getProperty(URL_PROPERTY, DEFAULT_URL));
+	}
+
+	/**
+	 * 
+	 * @param url
+	 *            URL of the AGDISTIS service
+	 */
+	public AGDISTISPost(String url) {
+		this.url = url;
+	}
+
+	private static HttpClient createClient() {
+		PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager();
+		connectionManager.setMaxTotal(50);
+		connectionManager.setDefaultMaxPerRoute(20);
+		DefaultHttpClient client = new DefaultHttpClient(connectionManager);
+		// retries are done in runDisambiguation
+		client.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+		return client;
+	}
+
 	/**
 	 * testing main
 	 * 
@@ -71,51 +137,177 @@ public class AGDISTISPost {
 	 *            "<entity> Barack </entity> meets <entity>Angela</entity>"
 	 * @return map of string to disambiguated URL
 	 * @throws ParseException
+	 *             if the response is no valid JSON
 	 * @throws IOException
+	 *             if the service could not be reached after all retries, the
+	 *             circuit is open or the response is no array of entities
 	 */
-	HashMap<String, String> runDisambiguation(String inputText) throws ParseException, IOException {
-		String urlParameters = "text=" + URLEncoder.encode(inputText, "UTF-8");
-		urlParameters += "&type=agdistis";
-
-		URL url = new URL("http://139.18.2.164:8080/AGDISTIS");
-		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-		connection.setRequestMethod("GET");
-		connection.setDoOutput(true);
-		connection.setDoInput(true);
-		connection.setUseCaches(false);
-		connection.setRequestProperty("Accept", "application/json");
-		connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-		connection.setRequestProperty("Content-Length", String.valueOf(urlParameters.length()));
-
-		DataOutputStream wr = new DataOutputStream(connection.getOutputStream());
-		wr.writeBytes(urlParameters);
-		wr.flush();
-
-		InputStream inputStream = connection.getInputStream();
-		InputStreamReader in = new InputStreamReader(inputStream);
-		BufferedReader reader = new BufferedReader(in);
-
-		StringBuilder sb = new StringBuilder();
-		while (reader.ready()) {
-			sb.append(reader.readLine());
+	public HashMap<String, String> runDisambiguation(String inputText) throws ParseException, IOException {
+		checkCircuit();
+		long backoff = backoffMillis;
+		for (int attempt = 0;; attempt++) {
+			try {
+				HashMap<String, String> result = post(inputText);
+				recordSuccess();
+				return result;
+			} catch (RetryableException e) {
+				if (attempt >= maxRetries) {
+					recordFailure();
+					throw e;
+				}
+				log.warn("AGDISTIS request failed (" + e.getMessage() + "), retrying in " + backoff + "ms");
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				backoff *= 2;
+			}
 		}
+	}
 
-		wr.close();
-		reader.close();
-		connection.disconnect();
+	private HashMap<String, String> post(String inputText) throws ParseException, IOException {
+		List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+		parameters.add(new BasicNameValuePair("text", inputText));
+		parameters.add(new BasicNameValuePair("type", "agdistis"));
 
-		String agdistis = sb.toString();
+		HttpPost request = new HttpPost(url);
+		request.setHeader("Accept", "application/json");
+		request.setEntity(new UrlEncodedFormEntity(parameters, "UTF-8"));
+		HttpConnectionParams.setConnectionTimeout(request.getParams(), connectTimeout);
+		HttpConnectionParams.setSoTimeout(request.getParams(), readTimeout);
+
+		HttpResponse response;
+		try {
+			response = client.execute(request);
+		} catch (IOException e) {
+			request.abort();
+			throw new RetryableException(e.toString());
+		}
+		HttpEntity entity = response.getEntity();
+		try {
+			int status = response.getStatusLine().getStatusCode();
+			if (status >= 500) {
+				throw new RetryableException("HTTP status " + status);
+			}
+			if (status != 200 || entity == null) {
+				throw new IOException("AGDISTIS returned HTTP status " + status);
+			}
+			Object resources;
+			try {
+				resources = new JSONParser().parse(new InputStreamReader(entity.getContent(), "UTF-8"));
+			} catch (IOException e) {
+				throw new RetryableException(e.toString());
+			}
+			if (!(resources instanceof JSONArray)) {
+				throw new IOException("AGDISTIS returned no array of entities: " + abbreviate(resources));
+			}
+			HashMap<String, String> tmp = new HashMap<String, String>();
+			for (Object res : (JSONArray) resources) {
+				if (!(res instanceof JSONObject)) {
+					throw new IOException("AGDISTIS returned an invalid entity: " + abbreviate(res));
+				}
+				JSONObject next = (JSONObject) res;
+				Object namedEntity = next.get("namedEntity");
+				Object disambiguatedURL = next.get("disambiguatedURL");
+				if (!(namedEntity instanceof String) || (disambiguatedURL != null && !(disambiguatedURL instanceof String))) {
+					throw new IOException("AGDISTIS returned an invalid entity: " + abbreviate(res));
+				}
+				tmp.put((String) namedEntity, (String) disambiguatedURL);
+			}
+			return tmp;
+		} finally {
+			// releases the connection to the pool
+			try {
+				EntityUtils.consume(entity);
+			} catch (IOException e) {
+				request.abort();
+			}
+		}
+	}
 
-		JSONParser parser = new JSONParser();
-		JSONArray resources = (JSONArray) parser.parse(agdistis);
+	private static String abbreviate(Object json) {
+		String s = String.valueOf(json);
+		return s.length() > 200 ? s.substring(0, 200) + "..." : s;
+	}
 
-		HashMap<String, String> tmp = new HashMap<String, String>();
-		for (Object res : resources.toArray()) {
-			JSONObject next = (JSONObject) res;
-			String namedEntity = (String) next.get("namedEntity");
-			String disambiguatedURL = (String) next.get("disambiguatedURL");
-			tmp.put(namedEntity, disambiguatedURL);
+	private synchronized void checkCircuit() throws IOException {
+		if (System.currentTimeMillis() < openUntil) {
+			throw new IOException("AGDISTIS at " + url + " failed " + consecutiveFailures + " times in a row, not sending requests until " + new Date(openUntil));
 		}
-		return tmp;
+	}
+
+	private synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		openUntil = 0;
+	}
+
+	private synchronized void recordFailure() {
+		consecutiveFailures++;
+		if (consecutiveFailures >= failureThreshold) {
+			openUntil = System.currentTimeMillis() + openMillis;
+			log.error("AGDISTIS at " + url + " failed " + consecutiveFailures + " times in a row, pausing requests for " + openMillis + "ms");
+		}
+	}
+
+	/**
+	 * a failure which may not occur again, e.g. a timeout or a server error
+	 */
+	private static class RetryableException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		RetryableException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * @param connectTimeout
+	 *            timeout in ms for establishing a connection
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * @param readTimeout
+	 *            timeout in ms between two packets of the response
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * @param maxRetries
+	 *            number of retries of a failed request
+	 */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * @param backoffMillis
+	 *            delay before the first retry, doubled for each further retry
+	 */
+	public void setBackoffMillis(long backoffMillis) {
+		this.backoffMillis = backoffMillis;
+	}
+
+	/**
+	 * @param failureThreshold
+	 *            number of failed calls in a row after which the circuit opens
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	/**
+	 * @param openMillis
+	 *            time in ms in which no requests are sent after the circuit
+	 *            opened
+	 */
+	public void setOpenMillis(long openMillis) {
+		this.openMillis = openMillis;
 	}
 }
@@ -0,0 +1,145 @@
+package org.aksw.rex.uris;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Persistent key-value store of disambiguated surface forms, kept in an H2
+ * database. Only resolved surface forms are stored, such that a surface form
+ * which could not be disambiguated is sent to AGDISTIS again. If the database
+ * can not be opened, nothing is cached.
+ *
+ * @author r.usbeck
+ *
+ */
+public class DisambiguationCache {
+	private static final Logger log = LoggerFactory.getLogger(DisambiguationCache.class);
+	private static final int BATCH_SIZE = 500;
+
+	private Connection connection;
+
+	/**
+	 *
+	 * @param cacheDirectory
+	 *            directory of the database, null for no cache
+	 */
+	public DisambiguationCache(String cacheDirectory) {
+		if (cacheDirectory == null) {
+			return;
+		}
+		try {
+			Class.forName("org.h2.Driver");
+			String path = new File(cacheDirectory, "agdistis").getAbsolutePath();
+			connection = DriverManager.getConnection("jdbc:h2:" + path, "sa", "");
+			Statement statement = connection.createStatement();
+			try {
+				statement.execute("CREATE TABLE IF NOT EXISTS DISAMBIGUATION (SURFACE VARCHAR PRIMARY KEY, URI VARCHAR)");
+			} finally {
+				statement.close();
+			}
+		} catch (ClassNotFoundException e) {
+			log.error("Could not open disambiguation cache in " + cacheDirectory, e);
+			connection = null;
+		} catch (SQLException e) {
+			log.error("Could not open disambiguation cache in " + cacheDirectory, e);
+			connection = null;
+		}
+	}
+
+	/**
+	 *
+	 * @param surfaceForms
+	 * @return the cached surface forms with their URIs
+	 */
+	public synchronized Map<String, String> getAll(Collection<String> surfaceForms) {
+		Map<String, String> cached = new HashMap<String, String>();
+		if (connection == null) {
+			return cached;
+		}
+		try {
+			for (List<String> batch : Lists.partition(new ArrayList<String>(surfaceForms), BATCH_SIZE)) {
+				StringBuilder sql = new StringBuilder("SELECT SURFACE, URI FROM DISAMBIGUATION WHERE SURFACE IN (");
+				for (int i = 0; i < batch.size(); i++) {
+					sql.append(i == 0 ? "?" : ",?");
+				}
+				// rows with URI null were written by older versions
+				sql.append(") AND URI IS NOT NULL");
+				PreparedStatement statement = connection.prepareStatement(sql.toString());
+				try {
+					for (int i = 0; i < batch.size(); i++) {
+						statement.setString(i + 1, batch.get(i));
+					}
+					ResultSet rs = statement.executeQuery();
+					while (rs.next()) {
+						cached.put(rs.getString(1), rs.getString(2));
+					}
+				} finally {
+					statement.close();
+				}
+			}
+		} catch (SQLException e) {
+			log.error("Could not read from disambiguation cache", e);
+		}
+		return cached;
+	}
+
+	/**
+	 *
+	 * @param disambiguations
+	 *            surface forms with their URIs, entries with URI null are
+	 *            not stored
+	 */
+	public synchronized void putAll(Map<String, String> disambiguations) {
+		if (connection == null || disambiguations.isEmpty()) {
+			return;
+		}
+		try {
+			PreparedStatement statement = connection.prepareStatement("MERGE INTO DISAMBIGUATION (SURFACE, URI) KEY (SURFACE) VALUES (?, ?)");
+			try {
+				for (Entry<String, String> entry : disambiguations.entrySet()) {
+					if (entry.getValue() == null) {
+						continue;
+					}
+					statement.setString(1, entry.getKey());
+					statement.setString(2, entry.getValue());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			log.error("Could not write to disambiguation cache", e);
+		}
+	}
+
+	/**
+	 * closes the database
+	 */
+	public synchronized void close() {
+		if (connection != null) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				log.error(e.getLocalizedMessage(), e);
+			}
+			connection = null;
+		}
+	}
+}
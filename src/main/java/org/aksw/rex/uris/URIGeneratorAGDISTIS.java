@@ -1,28 +1,61 @@
 package org.aksw.rex.uris;
 
+import java.io.Closeable;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.aksw.rex.results.ExtractionResult;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.rdf.model.Property;
 
 import edu.stanford.nlp.util.Quadruple;
 /**
  * implementation using AGDISTIS https://github.com/AKSW/AGDISTIS
+ *
+ * The subject and object strings of all extraction results are disambiguated
+ * at once: each distinct string is sent at most once, together with up to
+ * {@link #setBatchSize(int)} other strings per request, and the resolved URIs
+ * are kept in a {@link DisambiguationCache}. Surface forms AGDISTIS could not
+ * resolve are not cached, i.e. they are sent again in the next run. The
+ * generator has to be closed to release the cache.
  * @author r.usbeck
  *
  */
-public class URIGeneratorAGDISTIS implements URIGenerator {
+public class URIGeneratorAGDISTIS implements URIGenerator, Closeable {
 	private org.slf4j.Logger log = LoggerFactory.getLogger(URIGeneratorAGDISTIS.class);
 	private AGDISTISPost agdistis;
+	private DisambiguationCache cache;
+	private int batchSize = 50;
+	private int maxConcurrentRequests = 4;
 
 	public URIGeneratorAGDISTIS() {
-		this.agdistis = new AGDISTISPost();
+		this(new AGDISTISPost(), "sparql-cache");
+	}
+
+	/**
+	 *
+	 * @param agdistis
+	 * @param cacheDirectory
+	 *            directory of the disambiguation cache, null for no cache
+	 */
+	public URIGeneratorAGDISTIS(AGDISTISPost agdistis, String cacheDirectory) {
+		this.agdistis = agdistis;
+		this.cache = new DisambiguationCache(cacheDirectory);
 	}
 
 	/* (non-Javadoc)
@@ -35,46 +68,151 @@ public class URIGeneratorAGDISTIS implements URIGenerator {
 		if (pairs == null) {
 			return set;
 		}
+		Set<String> surfaceForms = new LinkedHashSet<String>();
+		for (ExtractionResult res : pairs) {
+			if (isValid(res)) {
+				surfaceForms.add(res.getSubject());
+				surfaceForms.add(res.getObject());
+			}
+		}
+		Map<String, String> uris = disambiguate(surfaceForms);
 		for (ExtractionResult res : pairs) {
-			// process left
-			log.info("Disambiguating:" + res.getSubject() +", "+ res.getObject());
-			Quadruple<Node, Node, Node, String> process = process(res, p);
-			if (process != null)
-				set.add(process);
+			if (isValid(res)) {
+				Node s = toNode(res.getSubject(), uris);
+				Node o = toNode(res.getObject(), uris);
+				set.add(new Quadruple<Node, Node, Node, String>(s, p.asNode(), o, res.getPageURL()));
+			}
 		}
 		return set;
 	}
 
-	private Quadruple<Node, Node, Node, String> process(ExtractionResult res, Property p) throws Exception {
-		String subjectString = res.getSubject();
-		String objectString = res.getObject();
-
-		if(subjectString==null||subjectString.equals(""))
-			return null;
-		if(objectString==null||objectString.equals(""))
-			return null;
-		Node s = null;
-		Node o = null;
-		String preAnnotatedText = "<entity>" + subjectString + "</entity><entity>" + objectString + "</entity>";
-
-		HashMap<String, String> results = agdistis.runDisambiguation(preAnnotatedText);
-		for (String namedEntity : results.keySet()) {
-			String disambiguatedURL = results.get(namedEntity);
-			if (namedEntity.equals(subjectString)&&disambiguatedURL!=null) {
-				s = Node.createURI(disambiguatedURL);
+	private boolean isValid(ExtractionResult res) {
+		return res.getSubject() != null && !res.getSubject().equals("") && res.getObject() != null && !res.getObject().equals("");
+	}
+
+	private Node toNode(String surfaceForm, Map<String, String> uris) throws Exception {
+		String uri = uris.get(surfaceForm);
+		if (uri == null) {
+			uri = "http://aksw.org/resource/" + URLEncoder.encode(surfaceForm, "UTF8");
+		}
+		return Node.createURI(uri);
+	}
+
+	/**
+	 *
+	 * @param surfaceForms
+	 * @return the surface forms with their URIs, the URI is null if the
+	 *         surface form could not be disambiguated
+	 */
+	public Map<String, String> disambiguate(Set<String> surfaceForms) {
+		Map<String, String> uris = cache.getAll(surfaceForms);
+		List<String> uncached = new ArrayList<String>();
+		for (String surfaceForm : surfaceForms) {
+			if (!uris.containsKey(surfaceForm)) {
+				uncached.add(surfaceForm);
 			}
-			if (namedEntity.equals(objectString)&&disambiguatedURL!=null) {
-				o = Node.createURI(disambiguatedURL);
+		}
+		List<List<String>> batches = Lists.partition(uncached, batchSize);
+		log.info("Disambiguating " + surfaceForms.size() + " surface forms, " + uris.size() + " cached, " + uncached.size() + " in " + batches.size() + " requests");
+		if (batches.isEmpty()) {
+			return uris;
+		}
+		if (maxConcurrentRequests <= 1 || batches.size() == 1) {
+			for (List<String> batch : batches) {
+				try {
+					uris.putAll(disambiguateBatch(batch));
+				} catch (Exception e) {
+					log.error("Could not disambiguate " + batch.size() + " surface forms", e);
+				}
 			}
+			return uris;
 		}
-		if (s == null) {
-			s = Node.createURI("http://aksw.org/resource/" + URLEncoder.encode(subjectString, "UTF8"));
+
+		ExecutorService workers = Executors.newFixedThreadPool(Math.min(maxConcurrentRequests, batches.size()), new ThreadFactoryBuilder().setNameFormat("agdistis-%d").build());
+		try {
+			List<Future<Map<String, String>>> futures = new ArrayList<Future<Map<String, String>>>();
+			for (final List<String> batch : batches) {
+				futures.add(workers.submit(new Callable<Map<String, String>>() {
+					@Override
+					public Map<String, String> call() throws Exception {
+						return disambiguateBatch(batch);
+					}
+				}));
+			}
+			for (int i = 0; i < batches.size(); i++) {
+				try {
+					uris.putAll(futures.get(i).get());
+				} catch (ExecutionException e) {
+					// the surface forms of the batch get fallback URIs
+					log.error("Could not disambiguate " + batches.get(i).size() + " surface forms", e);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			workers.shutdownNow();
 		}
-		if (o == null) {
-			o = Node.createURI("http://aksw.org/resource/" + URLEncoder.encode(objectString, "UTF8"));
+		return uris;
+	}
+
+	private Map<String, String> disambiguateBatch(List<String> batch) throws Exception {
+		StringBuilder preAnnotatedText = new StringBuilder();
+		for (String surfaceForm : batch) {
+			preAnnotatedText.append("<entity>").append(escape(surfaceForm)).append("</entity> ");
+		}
+		HashMap<String, String> results = agdistis.runDisambiguation(preAnnotatedText.toString());
+		// AGDISTIS may return the entities trimmed, with collapsed whitespace or still escaped
+		Map<String, String> normalizedResults = new HashMap<String, String>();
+		for (Map.Entry<String, String> result : results.entrySet()) {
+			if (result.getKey() != null && result.getValue() != null) {
+				normalizedResults.put(normalize(result.getKey()), result.getValue());
+			}
+		}
+		Map<String, String> uris = new HashMap<String, String>();
+		Map<String, String> resolved = new HashMap<String, String>();
+		for (String surfaceForm : batch) {
+			String uri = normalizedResults.get(normalize(surfaceForm));
+			uris.put(surfaceForm, uri);
+			if (uri != null) {
+				resolved.put(surfaceForm, uri);
+			}
 		}
-		Quadruple<Node, Node, Node, String> t = new Quadruple<Node, Node, Node, String>(s, p.asNode(), o,res.getPageURL());
-		return t;
+		// unresolved surface forms are sent again next time
+		cache.putAll(resolved);
+		return uris;
+	}
+
+	private static String escape(String surfaceForm) {
+		return surfaceForm.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	private static String normalize(String surfaceForm) {
+		String unescaped = surfaceForm.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+		return unescaped.replaceAll("\\s+", " ").trim();
+	}
+
+	/**
+	 * closes the disambiguation cache
+	 */
+	@Override
+	public void close() {
+		cache.close();
+	}
+
+	/**
+	 * @param batchSize
+	 *            maximum number of surface forms sent in one request
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * @param maxConcurrentRequests
+	 *            maximum number of requests sent to AGDISTIS at the same time
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		this.maxConcurrentRequests = maxConcurrentRequests;
 	}
 
 }
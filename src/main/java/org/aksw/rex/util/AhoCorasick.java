@@ -0,0 +1,111 @@
+package org.aksw.rex.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton to find all occurrences of a fixed set of patterns
+ * in a text in one pass over the text
+ *
+ * @author l.buehmann
+ *
+ */
+public class AhoCorasick {
+
+	private List<Map<Character, Integer>> transitions = new ArrayList<Map<Character, Integer>>();
+	private List<Integer> failure = new ArrayList<Integer>();
+	private List<BitSet> outputs = new ArrayList<BitSet>();
+	private List<String> patterns;
+
+	/**
+	 *
+	 * @param patterns
+	 *            the patterns to search for, the index of a pattern in this
+	 *            list is its id
+	 */
+	public AhoCorasick(List<String> patterns) {
+		this.patterns = new ArrayList<String>(patterns);
+		newState();
+		for (int id = 0; id < patterns.size(); id++) {
+			String pattern = patterns.get(id);
+			if (pattern.isEmpty()) {
+				continue;
+			}
+			int state = 0;
+			for (int i = 0; i < pattern.length(); i++) {
+				char c = pattern.charAt(i);
+				Integer next = transitions.get(state).get(c);
+				if (next == null) {
+					next = newState();
+					transitions.get(state).put(c, next);
+				}
+				state = next;
+			}
+			outputs.get(state).set(id);
+		}
+		buildFailureLinks();
+	}
+
+	/**
+	 *
+	 * @return the patterns of the automaton
+	 */
+	public List<String> getPatterns() {
+		return patterns;
+	}
+
+	/**
+	 *
+	 * @param text
+	 * @return ids of all patterns occurring in the text
+	 */
+	public BitSet match(String text) {
+		BitSet matches = new BitSet(patterns.size());
+		int state = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			Integer next;
+			while ((next = transitions.get(state).get(c)) == null && state != 0) {
+				state = failure.get(state);
+			}
+			state = next == null ? 0 : next;
+			matches.or(outputs.get(state));
+		}
+		return matches;
+	}
+
+	private int newState() {
+		transitions.add(new HashMap<Character, Integer>());
+		failure.add(0);
+		outputs.add(new BitSet());
+		return transitions.size() - 1;
+	}
+
+	private void buildFailureLinks() {
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for (Integer child : transitions.get(0).values()) {
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.removeFirst();
+			for (Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+				char c = transition.getKey();
+				int child = transition.getValue();
+				int fallback = failure.get(state);
+				Integer next;
+				while ((next = transitions.get(fallback).get(c)) == null && fallback != 0) {
+					fallback = failure.get(fallback);
+				}
+				int childFailure = next == null ? 0 : next;
+				failure.set(child, childFailure);
+				// a state also matches all patterns matched by its failure state
+				outputs.get(child).or(outputs.get(childFailure));
+				queue.add(child);
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package org.aksw.rex.util;
+
+import java.io.IOException;
+
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.CrawlIndexCursor;
+
+/**
+ * Utility class to rewrite an index built with plain stored HTML into the
+ * current layout with compressed HTML and an analyzed text field only
+ *
+ * @author r.usbeck
+ *
+ */
+public class IndexMigrator {
+
+	/**
+	 *
+	 * @param args
+	 *            old index directory and new index directory
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		String oldIndexDir = args.length > 0 ? args[0] : "htmlindex";
+		String newIndexDir = args.length > 1 ? args[1] : "htmlindex_migrated";
+
+		CrawlIndex oldIndex = new CrawlIndex(oldIndexDir);
+		CrawlIndex newIndex = new CrawlIndex(newIndexDir, 0);
+
+		System.out.print("Migrating " + oldIndex.size() + " documents...");
+		CrawlIndexCursor cursor = oldIndex.cursor();
+		int migrated = 0;
+		try {
+			while (cursor.hasNext()) {
+				Pair<String, String> document = cursor.next();
+				if (document.getRight() != null) {
+					newIndex.addDocumentToIndex(document.getLeft(), document.getRight());
+					migrated++;
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+		System.out.println("done (" + migrated + ")");
+
+		oldIndex.close();
+		newIndex.close();
+	}
+}
@@ -0,0 +1,228 @@
+package org.aksw.rex.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.aksw.jena_sparql_api.cache.core.QueryExecutionFactoryCacheEx;
+import org.aksw.jena_sparql_api.cache.extra.CacheBackend;
+import org.aksw.jena_sparql_api.cache.extra.CacheFrontend;
+import org.aksw.jena_sparql_api.cache.extra.CacheFrontendImpl;
+import org.aksw.jena_sparql_api.cache.h2.CacheCoreH2;
+import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
+import org.aksw.jena_sparql_api.core.QueryExecutionFactoryDataset;
+import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
+import org.dllearner.kb.LocalModelBasedSparqlEndpointKS;
+import org.dllearner.kb.SparqlEndpointKS;
+import org.dllearner.kb.sparql.SparqlEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.ontology.OntModelSpec;
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.tdb.TDB;
+import com.hp.hpl.jena.tdb.TDBFactory;
+
+/**
+ * Selects where the knowledge base is queried. By default all queries go to
+ * the SPARQL endpoint over HTTP, cached in H2. Setting the system property
+ * {@value #BACKEND_PROPERTY} to <code>memory</code> or <code>tdb</code> answers
+ * the same queries from local RDF dumps (N-Triples or Turtle, optionally
+ * gzipped) given as comma separated list in {@value #DUMP_PROPERTY}. The TDB
+ * store in {@value #TDB_DIRECTORY_PROPERTY} is loaded from the dumps only if it
+ * is empty, i.e. later runs start without parsing the dumps again. The local
+ * dataset is loaded once per JVM and shared.
+ *
+ * @author Lorenz Buehmann
+ *
+ */
+public class KnowledgeBaseBackend {
+
+	private static final Logger log = LoggerFactory.getLogger(KnowledgeBaseBackend.class);
+
+	public static final String BACKEND_PROPERTY = "rex.kb.backend";
+	public static final String DUMP_PROPERTY = "rex.kb.dump";
+	public static final String TDB_DIRECTORY_PROPERTY = "rex.kb.tdb";
+
+	public enum Type {
+		HTTP, MEMORY, TDB
+	}
+
+	private static Dataset dataset;
+
+	/**
+	 *
+	 * @return the backend selected by the system property
+	 *         {@value #BACKEND_PROPERTY}, HTTP if not set
+	 */
+	public static Type getType() {
+		String type = System.getProperty(BACKEND_PROPERTY, "http");
+		try {
+			return Type.valueOf(type.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			log.error("Unknown knowledge base backend " + type + ", using http.");
+			return Type.HTTP;
+		}
+	}
+
+	/**
+	 *
+	 * @return whether the knowledge base is queried locally
+	 */
+	public static boolean isLocal() {
+		return getType() != Type.HTTP;
+	}
+
+	/**
+	 *
+	 * @param endpoint
+	 *            endpoint queried by the HTTP backend
+	 * @param cacheDirectory
+	 *            directory of the H2 cache of the HTTP backend, null for no
+	 *            cache
+	 * @return query execution factory of the selected backend
+	 */
+	public static QueryExecutionFactory createQueryExecutionFactory(SparqlEndpoint endpoint, String cacheDirectory) {
+		if (isLocal()) {
+			return new QueryExecutionFactoryDataset(getDataset());
+		}
+		QueryExecutionFactory qef = new QueryExecutionFactoryHttp(endpoint.getURL().toString(), endpoint.getDefaultGraphURIs());
+		if (cacheDirectory != null) {
+			try {
+				long timeToLive = TimeUnit.DAYS.toMillis(30);
+				CacheBackend cacheBackend = CacheCoreH2.create(cacheDirectory, timeToLive, true);
+				CacheFrontend cacheFrontend = new CacheFrontendImpl(cacheBackend);
+				qef = new QueryExecutionFactoryCacheEx(qef, cacheFrontend);
+			} catch (ClassNotFoundException e) {
+				e.printStackTrace();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+		return qef;
+	}
+
+	/**
+	 * runs the SELECT query with one of the permits, the result is copied and
+	 * the execution closed, which releases the HTTP connection. Errors of the
+	 * query are not caught.
+	 *
+	 * @param qef
+	 * @param permits
+	 *            limits the number of concurrent queries
+	 * @param query
+	 * @return all solutions of the query
+	 */
+	public static List<QuerySolution> select(QueryExecutionFactory qef, Semaphore permits, String query) {
+		List<QuerySolution> solutions = new ArrayList<QuerySolution>();
+		permits.acquireUninterruptibly();
+		QueryExecution qe = null;
+		try {
+			qe = qef.createQueryExecution(query);
+			ResultSet rs = qe.execSelect();
+			while (rs.hasNext()) {
+				solutions.add(rs.next());
+			}
+		} finally {
+			if (qe != null) {
+				qe.close();
+			}
+			permits.release();
+		}
+		return solutions;
+	}
+
+	/**
+	 *
+	 * @param endpoint
+	 * @return knowledge source for the DL-Learner components, backed by the
+	 *         local dataset if the backend is local
+	 */
+	public static SparqlEndpointKS createKnowledgeSource(SparqlEndpoint endpoint) {
+		if (isLocal()) {
+			return new LocalModelBasedSparqlEndpointKS(ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM, getDataset().getDefaultModel()));
+		}
+		return new SparqlEndpointKS(endpoint);
+	}
+
+	/**
+	 *
+	 * @return the local dataset, loaded on first access
+	 */
+	public static synchronized Dataset getDataset() {
+		if (dataset == null) {
+			long start = System.currentTimeMillis();
+			if (getType() == Type.TDB) {
+				String directory = System.getProperty(TDB_DIRECTORY_PROPERTY, "tdb");
+				dataset = TDBFactory.createDataset(directory);
+				if (dataset.getDefaultModel().isEmpty()) {
+					load(dataset.getDefaultModel());
+					TDB.sync(dataset);
+				}
+			} else {
+				Model model = ModelFactory.createDefaultModel();
+				load(model);
+				dataset = DatasetFactory.create(model);
+			}
+			log.info("Local knowledge base with " + dataset.getDefaultModel().size() + " triples ready after " + (System.currentTimeMillis() - start) + "ms");
+		}
+		return dataset;
+	}
+
+	/**
+	 * uses the given dataset as local knowledge base instead of loading the
+	 * dumps, e.g. in tests
+	 *
+	 * @param dataset
+	 *            the local dataset, null to load the dumps on next access
+	 */
+	public static synchronized void setDataset(Dataset dataset) {
+		KnowledgeBaseBackend.dataset = dataset;
+	}
+
+	private static void load(Model model) {
+		String dumps = System.getProperty(DUMP_PROPERTY);
+		if (dumps == null) {
+			log.warn("No dump files given in " + DUMP_PROPERTY + ", the local knowledge base is empty.");
+			return;
+		}
+		for (String dump : dumps.split(",")) {
+			File file = new File(dump.trim());
+			log.info("Loading " + file);
+			InputStream in = null;
+			try {
+				in = new FileInputStream(file);
+				String name = file.getName();
+				if (name.endsWith(".gz")) {
+					in = new GZIPInputStream(in);
+					name = name.substring(0, name.length() - 3);
+				}
+				String lang = name.endsWith(".ttl") || name.endsWith(".n3") ? "TURTLE" : "N-TRIPLE";
+				model.read(in, null, lang);
+			} catch (IOException e) {
+				log.error("Could not load dump " + file, e);
+			} finally {
+				if (in != null) {
+					try {
+						in.close();
+					} catch (IOException e) {
+						log.error(e.getLocalizedMessage(), e);
+					}
+				}
+			}
+		}
+	}
+}
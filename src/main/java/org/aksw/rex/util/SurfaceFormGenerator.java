@@ -5,70 +5,206 @@ package org.aksw.rex.util;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
-import org.aksw.jena_sparql_api.cache.core.QueryExecutionFactoryCacheEx;
-import org.aksw.jena_sparql_api.cache.extra.CacheBackend;
-import org.aksw.jena_sparql_api.cache.extra.CacheFrontend;
-import org.aksw.jena_sparql_api.cache.extra.CacheFrontendImpl;
-import org.aksw.jena_sparql_api.cache.h2.CacheCoreH2;
 import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
-import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
 import org.dllearner.kb.sparql.SparqlEndpoint;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.util.IRIShortFormProvider;
 import org.semanticweb.owlapi.util.SimpleIRIShortFormProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.hp.hpl.jena.query.ResultSet;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.hp.hpl.jena.query.QuerySolution;
 
 /**
- * generates surface forms for semantic web resources
+ * generates surface forms for semantic web resources, instances can be used
+ * concurrently
  * @author Lorenz Buehmann
  *
  */
 public class SurfaceFormGenerator {
 
-	private static IRIShortFormProvider sfp = new SimpleIRIShortFormProvider();
-	private static QueryExecutionFactory qef;
+	private static final Logger log = LoggerFactory.getLogger(SurfaceFormGenerator.class);
+	private static final IRIShortFormProvider sfp = new SimpleIRIShortFormProvider();
+	private static final ConcurrentHashMap<String, SurfaceFormGenerator> instances = new ConcurrentHashMap<String, SurfaceFormGenerator>();
+	/**
+	 * number of resources whose labels are retrieved with one query
+	 */
+	public static final int BATCH_SIZE = 200;
+	/**
+	 * default maximum number of concurrent requests to the endpoint
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+	
+	// declared in each query, local backends do not predefine prefixes
+	private static final String PREFIXES = "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> ";
+	
+	private final QueryExecutionFactory qef;
+	private final Semaphore requestPermits;
+	private final Cache<String, Set<String>> labelCache = CacheBuilder.newBuilder().maximumSize(100000).build();
+	
 	/**
 	 * 
 	 * @param endpoint
 	 * @param cacheDirectory
 	 */
 	public SurfaceFormGenerator(SparqlEndpoint endpoint, String cacheDirectory) {
-		qef = new QueryExecutionFactoryHttp(endpoint.getURL().toString(), endpoint.getDefaultGraphURIs());
-		if(cacheDirectory != null){
-			try {
-				long timeToLive = TimeUnit.DAYS.toMillis(30);
-				CacheBackend cacheBackend = CacheCoreH2.create(cacheDirectory, timeToLive, true);
-				CacheFrontend cacheFrontend = new CacheFrontendImpl(cacheBackend);
-				qef = new QueryExecutionFactoryCacheEx(qef, cacheFrontend);
-			} catch (ClassNotFoundException e) {
-				e.printStackTrace();
-			} catch (SQLException e) {
-				e.printStackTrace();
+		this(endpoint, cacheDirectory, DEFAULT_MAX_CONCURRENT_REQUESTS);
+	}
+	
+	/**
+	 * 
+	 * @param endpoint
+	 * @param cacheDirectory
+	 * @param maxConcurrentRequests maximum number of requests sent to the endpoint at the same time, the JVM keeps
+	 * at most 5 idle connections per endpoint alive unless <code>http.maxConnections</code> is set
+	 */
+	public SurfaceFormGenerator(SparqlEndpoint endpoint, String cacheDirectory, int maxConcurrentRequests) {
+		this.qef = KnowledgeBaseBackend.createQueryExecutionFactory(endpoint, cacheDirectory);
+		this.requestPermits = new Semaphore(Math.max(1, maxConcurrentRequests));
+	}
+	
+	/**
+	 * Returns the generator shared by all users of the endpoint and cache
+	 * directory in this JVM, such that they share the caches and the limit of
+	 * concurrent requests.
+	 * @param endpoint
+	 * @param cacheDirectory
+	 * @return
+	 */
+	public static SurfaceFormGenerator getInstance(SparqlEndpoint endpoint, String cacheDirectory) {
+		String key = endpoint.getURL() + " " + endpoint.getDefaultGraphURIs() + " " + cacheDirectory;
+		SurfaceFormGenerator generator = instances.get(key);
+		if(generator == null){
+			synchronized (instances) {
+				generator = instances.get(key);
+				if(generator == null){
+					generator = new SurfaceFormGenerator(endpoint, cacheDirectory);
+					instances.put(key, generator);
+				}
 			}
 		}
+		return generator;
+	}
+	
+	/**
+	 * Runs the query with one of the request permits.
+	 * @param query
+	 * @return
+	 */
+	private List<QuerySolution> select(String query){
+		return KnowledgeBaseBackend.select(qef, requestPermits, query);
 	}
+	
 	/**
-	 * retrieves the label of the given resource
+	 * retrieves the label of the given resource, errors of the query are
+	 * passed on
 	 * @param endpoint
 	 * @param uri of a target resource
 	 * @return
 	 */
 	public Set<String> getSurfaceForms(SparqlEndpoint endpoint, String uri){
-		Set<String> surfaceforms = new HashSet<String>();
+		Set<String> surfaceforms = labelCache.getIfPresent(uri);
+		if(surfaceforms != null){
+			return new HashSet<String>(surfaceforms);
+		}
+		surfaceforms = new HashSet<String>();
 		
-		String query = "SELECT ?l WHERE {<" + uri + "> rdfs:label ?l. FILTER(LANGMATCHES(LANG(?l),'en'))}";
-		ResultSet rs = qef.createQueryExecution(query).execSelect();
-		while(rs.hasNext()){
-			surfaceforms.add(cleanUp(rs.next().getLiteral("l").getLexicalForm()));
+		String query = PREFIXES + "SELECT ?l WHERE {<" + uri + "> rdfs:label ?l. FILTER(LANGMATCHES(LANG(?l),'en'))}";
+		for (QuerySolution qs : select(query)) {
+			surfaceforms.add(cleanUp(qs.getLiteral("l").getLexicalForm()));
+		}
+		
+		addFallback(uri, surfaceforms);
+		labelCache.put(uri, surfaceforms);
+		return new HashSet<String>(surfaceforms);
+	}
+	
+	/**
+	 * retrieves the labels of the given resources with one query per
+	 * {@value #BATCH_SIZE} resources not cached yet. The resources of a batch
+	 * whose query failed get the fallback surface form, which is not cached.
+	 * @param endpoint
+	 * @param uris of the target resources
+	 * @return the surface forms of each resource
+	 */
+	public Map<String, Set<String>> getSurfaceForms(SparqlEndpoint endpoint, Collection<String> uris){
+		Map<String, Set<String>> uri2SurfaceForms = new HashMap<String, Set<String>>();
+		List<String> uncached = new ArrayList<String>();
+		for (String uri : new LinkedHashSet<String>(uris)) {
+			Set<String> surfaceforms = labelCache.getIfPresent(uri);
+			if(surfaceforms != null){
+				uri2SurfaceForms.put(uri, new HashSet<String>(surfaceforms));
+			} else {
+				uncached.add(uri);
+			}
 		}
 		
-		//Fallback: Use short form of URI
+		for (List<String> batch : Lists.partition(uncached, BATCH_SIZE)) {
+			Map<String, Set<String>> labels = new HashMap<String, Set<String>>();
+			for (String uri : batch) {
+				labels.put(uri, new HashSet<String>());
+			}
+			StringBuilder query = new StringBuilder(PREFIXES + "SELECT ?s ?l WHERE {VALUES ?s {");
+			for (String uri : batch) {
+				query.append(" <").append(uri).append(">");
+			}
+			query.append("} ?s rdfs:label ?l. FILTER(LANGMATCHES(LANG(?l),'en'))}");
+			boolean answered = true;
+			try {
+				for (QuerySolution qs : select(query.toString())) {
+					Set<String> surfaceforms = labels.get(qs.getResource("s").getURI());
+					if(surfaceforms != null){
+						surfaceforms.add(cleanUp(qs.getLiteral("l").getLexicalForm()));
+					}
+				}
+			} catch (RuntimeException e) {
+				//the fallback is returned but not cached, i.e. the labels are retrieved again next time
+				log.error("Could not retrieve the labels of " + batch.size() + " resources", e);
+				answered = false;
+			}
+			for (Entry<String, Set<String>> entry : labels.entrySet()) {
+				addFallback(entry.getKey(), entry.getValue());
+				if(answered){
+					labelCache.put(entry.getKey(), entry.getValue());
+				}
+				uri2SurfaceForms.put(entry.getKey(), new HashSet<String>(entry.getValue()));
+			}
+		}
+		return uri2SurfaceForms;
+	}
+	
+	/**
+	 * loads the labels of the given resources into the cache, such that later
+	 * calls of {@link #getSurfaceForms(SparqlEndpoint, String)} do not query
+	 * the endpoint
+	 * @param endpoint
+	 * @param uris of the target resources
+	 */
+	public void prefetch(SparqlEndpoint endpoint, Collection<String> uris){
+		getSurfaceForms(endpoint, uris);
+	}
+	
+	/**
+	 * Fallback: Use short form of URI
+	 * @param uri
+	 * @param surfaceforms
+	 */
+	private void addFallback(String uri, Set<String> surfaceforms){
 		if(surfaceforms.isEmpty()){
 			try {
 				uri = URLDecoder.decode(uri, "UTF-8");
@@ -77,7 +213,6 @@ public class SurfaceFormGenerator {
 			}
 			surfaceforms.add(cleanUp(sfp.getShortForm(IRI.create(uri)).replace("_", " ")));
 		}
-		return surfaceforms;
 	}
 	
 	/**
@@ -0,0 +1,238 @@
+package org.aksw.rex.xpath;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.xpath.XPathExpressionException;
+
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.CrawlIndexCursor;
+import org.aksw.rex.crawler.DOMBuilder;
+import org.aksw.rex.crawler.DOMCache;
+import org.aksw.rex.results.ExtractionResult;
+import org.aksw.rex.results.ExtractionResultImpl;
+import org.aksw.rex.util.Pair;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import rules.xpath.XPathRule;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Applies extraction rules to all documents of a domain in parallel. The
+ * documents are streamed from the {@link CrawlIndex} into a bounded queue and
+ * processed by several workers, each page is parsed once and all rules are
+ * applied to it. As each page is visited only once, the pages are parsed
+ * directly instead of being put into the {@link DOMCache}, where they would
+ * evict the pages reused by the learning. Results are passed to a {@link ResultSink} once per distinct
+ * value.
+ *
+ * @author Lorenz Buehmann
+ *
+ */
+public class ExtractionEngine {
+	private static Logger log = LoggerFactory.getLogger(ExtractionEngine.class);
+	private static final Pair<String, String> POISON = new Pair<String, String>("", "");
+
+	/**
+	 * receives the results of the extraction, might be called concurrently
+	 */
+	public interface ResultSink {
+		void accept(ExtractionResult result) throws InterruptedException;
+	}
+
+	private CrawlIndex index;
+	private int numberOfThreads;
+	private int queueCapacity;
+	private AtomicLong pages = new AtomicLong();
+	private long startTime;
+	private long endTime;
+
+	/**
+	 *
+	 * @param index
+	 * @param numberOfThreads
+	 *            number of workers applying the rules
+	 */
+	public ExtractionEngine(CrawlIndex index, int numberOfThreads) {
+		this(index, numberOfThreads, 100);
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @param numberOfThreads
+	 *            number of workers applying the rules
+	 * @param queueCapacity
+	 *            number of documents read ahead of the workers
+	 */
+	public ExtractionEngine(CrawlIndex index, int numberOfThreads, int queueCapacity) {
+		this.index = index;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.queueCapacity = Math.max(1, queueCapacity);
+	}
+
+	/**
+	 *
+	 * @param queue
+	 *            bounded queue, the workers block while it is full
+	 * @return sink putting the results into the queue
+	 */
+	public static ResultSink queueSink(final BlockingQueue<ExtractionResult> queue) {
+		return new ResultSink() {
+			@Override
+			public void accept(ExtractionResult result) throws InterruptedException {
+				queue.put(result);
+			}
+		};
+	}
+
+	/**
+	 * applies the rules to all documents of the domain and collects the results
+	 *
+	 * @param extractionRules
+	 * @param domainURL
+	 * @return the distinct results
+	 */
+	public Set<ExtractionResult> extract(List<Pair<XPathRule, XPathRule>> extractionRules, String domainURL) {
+		final Set<ExtractionResult> results = Collections.synchronizedSet(new LinkedHashSet<ExtractionResult>());
+		extract(extractionRules, domainURL, new ResultSink() {
+			@Override
+			public void accept(ExtractionResult result) {
+				results.add(result);
+			}
+		});
+		synchronized (results) {
+			return new HashSet<ExtractionResult>(results);
+		}
+	}
+
+	/**
+	 * applies the rules to all documents of the domain and passes each
+	 * distinct result to the sink, returns when all documents are processed
+	 *
+	 * @param extractionRules
+	 * @param domainURL
+	 * @param sink
+	 * @return number of processed pages
+	 */
+	public long extract(final List<Pair<XPathRule, XPathRule>> extractionRules, String domainURL, final ResultSink sink) {
+		pages.set(0);
+		startTime = System.currentTimeMillis();
+		endTime = 0;
+
+		CrawlIndexCursor documents;
+		try {
+			documents = index.cursor(domainURL, CrawlIndex.DEFAULT_BATCH_SIZE);
+		} catch (IOException e) {
+			log.error("Could not read documents of domain " + domainURL);
+			return 0;
+		}
+
+		final BlockingQueue<Pair<String, String>> queue = new ArrayBlockingQueue<Pair<String, String>>(queueCapacity);
+		final Set<ExtractionResult> seen = Collections.newSetFromMap(new ConcurrentHashMap<ExtractionResult, Boolean>());
+		ExecutorService workers = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactoryBuilder().setNameFormat("extraction-engine-%d").build());
+		for (int i = 0; i < numberOfThreads; i++) {
+			workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Pair<String, String> document;
+						while ((document = queue.take()) != POISON) {
+							apply(extractionRules, document.getLeft(), document.getRight(), seen, sink);
+							pages.incrementAndGet();
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+
+		// stream the documents to the workers
+		try {
+			while (documents.hasNext()) {
+				queue.put(documents.next());
+			}
+			for (int i = 0; i < numberOfThreads; i++) {
+				queue.put(POISON);
+			}
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			documents.close();
+			// stops the workers if the documents could not be streamed completely
+			workers.shutdownNow();
+		}
+		endTime = System.currentTimeMillis();
+		log.info("Applied " + extractionRules.size() + " rules to " + pages.get() + " pages (" + (int) getPagesPerSecond() + " pages/sec), " + seen.size() + " results");
+		return pages.get();
+	}
+
+	/**
+	 *
+	 * @return pages processed per second by the current or last run
+	 */
+	public double getPagesPerSecond() {
+		long duration = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+		return duration > 0 ? pages.get() * 1000d / duration : 0;
+	}
+
+	/**
+	 *
+	 * @return pages processed by the current or last run
+	 */
+	public long getProcessedPages() {
+		return pages.get();
+	}
+
+	private void apply(List<Pair<XPathRule, XPathRule>> extractionRules, String url, String html, Set<ExtractionResult> seen, ResultSink sink) throws InterruptedException {
+		try {
+			Document doc = DOMBuilder.jsoup2DOM(Jsoup.parse(html));
+			for (Pair<XPathRule, XPathRule> rule : extractionRules) {
+				Set<String> subjects = getTextContents(rule.getLeft(), doc);
+				Set<String> objects = getTextContents(rule.getRight(), doc);
+
+				// add extraction results for each subject-object pair
+				for (String sub : subjects) {
+					for (String obj : objects) {
+						ExtractionResult result = new ExtractionResultImpl(sub, obj, url);
+						if (seen.add(result)) {
+							sink.accept(result);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			log.debug("Could not process URL: " + url);
+		}
+	}
+
+	private Set<String> getTextContents(XPathRule rule, Document doc) throws XPathExpressionException {
+		Set<String> texts = new HashSet<String>();
+		NodeList nodeList = XPathRegistry.evaluate(rule, doc);
+		for (int i = 0; i < nodeList.getLength(); i++) {
+			texts.add(nodeList.item(i).getTextContent());
+		}
+		return texts;
+	}
+}
@@ -0,0 +1,147 @@
+package org.aksw.rex.xpath;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.aksw.rex.util.AhoCorasick;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Index of the text of a page built in one walk over its DOM. For each text an
+ * element contains directly, the absolute XPath of the element is stored, in
+ * document order. Lookups either require a direct text child to equal the
+ * query or, given an {@link AhoCorasick} automaton over all queries, to contain
+ * the query after whitespace normalization. This replaces evaluating one XPath
+ * expression per query over the whole DOM.
+ *
+ * @author l.buehmann
+ *
+ */
+public class TextNodeIndex {
+
+	private Map<String, List<String>> exactMatches = new HashMap<String, List<String>>();
+	private Map<Integer, List<String>> substringMatches = new HashMap<Integer, List<String>>();
+	private AhoCorasick automaton;
+
+	/**
+	 * builds an index for exact matches only
+	 *
+	 * @param doc
+	 */
+	public TextNodeIndex(Document doc) {
+		this(doc, null);
+	}
+
+	/**
+	 *
+	 * @param doc
+	 * @param automaton
+	 *            automaton over the normalized queries used for substring
+	 *            matches, might be null
+	 */
+	public TextNodeIndex(Document doc, AhoCorasick automaton) {
+		this.automaton = automaton;
+		Element root = doc.getDocumentElement();
+		if (root != null) {
+			index(root, "/" + root.getTagName() + "[1]");
+		}
+	}
+
+	/**
+	 *
+	 * @param query
+	 * @return paths of all elements with a text child equal to the query
+	 */
+	public List<String> getExactMatches(String query) {
+		List<String> paths = exactMatches.get(query);
+		return paths == null ? Collections.<String> emptyList() : paths;
+	}
+
+	/**
+	 *
+	 * @param patternId
+	 *            id of the query in the automaton
+	 * @return paths of all elements with a text child containing the query
+	 */
+	public List<String> getSubstringMatches(int patternId) {
+		List<String> paths = substringMatches.get(patternId);
+		return paths == null ? Collections.<String> emptyList() : paths;
+	}
+
+	/**
+	 *
+	 * @param text
+	 * @return text with trimmed and collapsed whitespace
+	 */
+	public static String normalize(String text) {
+		return text.replaceAll("\\s+", " ").trim();
+	}
+
+	private void index(Element element, String path) {
+		Set<String> texts = new LinkedHashSet<String>();
+		BitSet patterns = new BitSet();
+		Map<String, Integer> tagCounts = new HashMap<String, Integer>();
+		List<Element> children = new ArrayList<Element>();
+		List<String> childPaths = new ArrayList<String>();
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.TEXT_NODE) {
+				String text = child.getNodeValue();
+				texts.add(text);
+				if (automaton != null) {
+					patterns.or(automaton.match(normalize(text)));
+				}
+			} else if (child.getNodeType() == Node.ELEMENT_NODE) {
+				Element childElement = (Element) child;
+				String tag = childElement.getTagName();
+				Integer count = tagCounts.get(tag);
+				count = count == null ? 1 : count + 1;
+				tagCounts.put(tag, count);
+				children.add(childElement);
+				childPaths.add(path + "/" + tag + "[" + count + "]");
+			}
+		}
+		for (String text : texts) {
+			List<String> paths = exactMatches.get(text);
+			if (paths == null) {
+				paths = new ArrayList<String>();
+				exactMatches.put(text, paths);
+			}
+			paths.add(path);
+		}
+		for (int id = patterns.nextSetBit(0); id >= 0; id = patterns.nextSetBit(id + 1)) {
+			List<String> paths = substringMatches.get(id);
+			if (paths == null) {
+				paths = new ArrayList<String>();
+				substringMatches.put(id, paths);
+			}
+			paths.add(path);
+		}
+		// pre-order keeps the paths in document order
+		for (int i = 0; i < children.size(); i++) {
+			index(children.get(i), childPaths.get(i));
+		}
+	}
+
+	/**
+	 * builds an automaton over the normalized surface forms
+	 *
+	 * @param surfaceForms
+	 * @return automaton in which the id of a surface form is its index in the
+	 *         given list
+	 */
+	public static AhoCorasick buildAutomaton(List<String> surfaceForms) {
+		List<String> patterns = new ArrayList<String>();
+		for (String surfaceForm : surfaceForms) {
+			patterns.add(normalize(surfaceForm));
+		}
+		return new AhoCorasick(patterns);
+	}
+}
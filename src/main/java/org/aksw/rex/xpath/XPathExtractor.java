@@ -1,28 +1,27 @@
 package org.aksw.rex.xpath;
 
-import static org.joox.JOOX.$;
-
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.DOMCache;
+import org.aksw.rex.util.AhoCorasick;
 import org.aksw.rex.util.Pair;
 import org.jsoup.Jsoup;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import rules.xpath.XPathRule;
@@ -76,6 +75,7 @@ public class XPathExtractor {
 		List<Pair<XPathRule, XPathRule>> paths = new ArrayList<Pair<XPathRule, XPathRule>>();
 		// search for all pages containing subject and object
 		ArrayList<Pair<String, String>> docs = index.searchHTML(subject + " AND " + object);
+		AhoCorasick automaton = exactMatch ? null : TextNodeIndex.buildAutomaton(Arrays.asList(subject, object));
 		int d = 0;
 		for (Pair<String, String> document : docs) {
 //			log.debug("Progress: " + ((double) d++ / (double) docs.size()));
@@ -84,9 +84,9 @@ public class XPathExtractor {
 			String html = document.getRight();
 			if(domainURL != null && url.startsWith(domainURL)){
 				try {
-					
-					List<String> subjectXPaths = extractXPaths(subject, html, exactMatch);
-					List<String> objectXPaths = extractXPaths(object, html, exactMatch);
+					TextNodeIndex textNodes = createTextNodeIndex(url, html, automaton);
+					List<String> subjectXPaths = lookup(textNodes, subject, 0, exactMatch);
+					List<String> objectXPaths = lookup(textNodes, object, 1, exactMatch);
 					if(!subjectXPaths.isEmpty() && !objectXPaths.isEmpty()){
 						log.trace("Found XPath expressions on " + url);
 					}
@@ -120,8 +120,9 @@ public class XPathExtractor {
 			String html = document.getRight();
 			try {
 				log.debug("URL: " + url);
-				List<String> subjectXPaths = extractXPaths(subject, html);
-				List<String> objectXPaths = extractXPaths(object, html);
+				TextNodeIndex textNodes = createTextNodeIndex(url, html, null);
+				List<String> subjectXPaths = lookup(textNodes, subject, 0, true);
+				List<String> objectXPaths = lookup(textNodes, object, 1, true);
 				for (String subjectXPath : subjectXPaths) {
 					for (String objectXPath : objectXPaths) {
 						log.debug("Subject: " + subjectXPath);
@@ -144,51 +145,124 @@ public class XPathExtractor {
 	}
 	
 	public List<String> extractXPaths(String query, String html, boolean exactMatch) throws XPathExpressionException {
-		List<String> paths = new ArrayList<String>();
-
 		// XPATH PART
 		org.jsoup.nodes.Document jsoupDoc = Jsoup.parse(html);
 		Document W3CDoc = org.aksw.rex.crawler.DOMBuilder.jsoup2DOM(jsoupDoc);
+		return extractXPaths(query, W3CDoc, exactMatch);
+	}
+
+	/**
+	 * 
+	 * @param query
+	 * @param W3CDoc
+	 *            already parsed page, e.g. from the {@link DOMCache}
+	 * @param exactMatch
+	 * @return XPaths of all elements containing the query as text
+	 * @throws XPathExpressionException
+	 */
+	public List<String> extractXPaths(String query, Document W3CDoc, boolean exactMatch) throws XPathExpressionException {
+		AhoCorasick automaton = exactMatch ? null : TextNodeIndex.buildAutomaton(Collections.singletonList(query));
+		return new ArrayList<String>(lookup(new TextNodeIndex(W3CDoc, automaton), query, 0, exactMatch));
+	}
 
-		XPathFactory factory = XPathFactory.newInstance();
-		XPath xpath = factory.newXPath();
-		//*/text()[normalize-space(.)='match']/parent::*
-		String expression;
-		if(exactMatch){// all nodes that contains text that equals "query"
-			expression = "//*[text()='" + query + "']";
-		} else {// all nodes that contains text that contains "query"
-			expression = "//*[contains(.,'" + query + "')]";
+	/**
+	 * extracts the XPaths of many pairs of surface forms at once. The URLs of
+	 * the pages containing any of the pairs are collected first, then each
+	 * page is loaded and walked once to find the nodes of all surface forms
+	 * found on it, i.e. only one page is held in memory at a time.
+	 * 
+	 * @param surfaceFormPairs
+	 *            pairs of subject and object surface forms
+	 * @param domainURL
+	 *            only pages starting with this URL are used, might be null
+	 * @param exactMatch
+	 * @return for each pair of surface forms the pairs of subject and object
+	 *         XPaths in the order of the given pairs, the XPaths of a pair are
+	 *         in the order of its pages, i.e. they do not depend on the other
+	 *         pairs
+	 */
+	public Map<Pair<String, String>, List<Pair<XPathRule, XPathRule>>> extractPathsFromCrawlIndex(Collection<Pair<String, String>> surfaceFormPairs, String domainURL, boolean exactMatch) {
+		Map<Pair<String, String>, List<String>> pair2URLs = new LinkedHashMap<Pair<String, String>, List<String>>();
+		Map<Pair<String, String>, Map<String, List<Pair<XPathRule, XPathRule>>>> pair2PagePaths = new HashMap<Pair<String, String>, Map<String, List<Pair<XPathRule, XPathRule>>>>();
+		Map<String, Integer> surfaceForm2Id = new LinkedHashMap<String, Integer>();
+		Map<String, List<Pair<String, String>>> url2Pairs = new LinkedHashMap<String, List<Pair<String, String>>>();
+
+		// group the pages by the pairs they contain
+		for (Pair<String, String> pair : surfaceFormPairs) {
+			List<String> urls = new ArrayList<String>();
+			pair2URLs.put(pair, urls);
+			pair2PagePaths.put(pair, new HashMap<String, List<Pair<XPathRule, XPathRule>>>());
+			for (String surfaceForm : Arrays.asList(pair.getLeft(), pair.getRight())) {
+				if (!surfaceForm2Id.containsKey(surfaceForm)) {
+					surfaceForm2Id.put(surfaceForm, surfaceForm2Id.size());
+				}
+			}
+			for (String url : index.searchHTMLForURLs(pair.getLeft() + " AND " + pair.getRight())) {
+				if (domainURL != null && !url.startsWith(domainURL)) {
+					continue;
+				}
+				urls.add(url);
+				List<Pair<String, String>> pairs = url2Pairs.get(url);
+				if (pairs == null) {
+					pairs = new ArrayList<Pair<String, String>>();
+					url2Pairs.put(url, pairs);
+				}
+				pairs.add(pair);
+			}
 		}
-		
-		NodeList nodeList = (NodeList) xpath.evaluate(expression, W3CDoc, XPathConstants.NODESET);
-		// select appropriate nodes
-		for (int i = 0; i < nodeList.getLength(); i++) {
-			Node item = nodeList.item(i);
-			if (checkChildsDoContainText(item, query)) {
-				String xPath = getXPath(item);
-				paths.add(xPath);
+		log.debug("Extracting XPaths of " + surfaceFormPairs.size() + " pairs of surface forms from " + url2Pairs.size() + " pages");
+
+		AhoCorasick automaton = exactMatch ? null : TextNodeIndex.buildAutomaton(new ArrayList<String>(surfaceForm2Id.keySet()));
+		for (Entry<String, List<Pair<String, String>>> entry : url2Pairs.entrySet()) {
+			String url = entry.getKey();
+			try {
+				List<Pair<String, String>> documents = index.searchURL(url);
+				if (documents.isEmpty()) {
+					continue;
+				}
+				TextNodeIndex textNodes = createTextNodeIndex(url, documents.get(0).getRight(), automaton);
+				for (Pair<String, String> pair : entry.getValue()) {
+					List<String> subjectXPaths = lookup(textNodes, pair.getLeft(), surfaceForm2Id.get(pair.getLeft()), exactMatch);
+					List<String> objectXPaths = lookup(textNodes, pair.getRight(), surfaceForm2Id.get(pair.getRight()), exactMatch);
+					List<Pair<XPathRule, XPathRule>> paths = new ArrayList<Pair<XPathRule, XPathRule>>();
+					for (String subjectXPath : subjectXPaths) {
+						for (String objectXPath : objectXPaths) {
+							paths.add(new Pair<XPathRule, XPathRule>(new XPathRule(subjectXPath), new XPathRule(objectXPath)));
+						}
+					}
+					pair2PagePaths.get(pair).put(url, paths);
+				}
+			} catch (Exception e) {
+				log.error("Could not process URL: " + url);
 			}
 		}
-		return paths;
-	}
 
-	private boolean checkChildsDoContainText(Node item, String query) {
-		NodeList childs = item.getChildNodes();
-		for (int i = 0; i < childs.getLength(); ++i) {
-			Node child = childs.item(i);
-			if (child.getNodeType() == Node.TEXT_NODE) {
-				if (child.getTextContent().contains(query)) {
-					return true;
+		// the XPaths of each pair in the order of its own pages
+		Map<Pair<String, String>, List<Pair<XPathRule, XPathRule>>> pair2Paths = new LinkedHashMap<Pair<String, String>, List<Pair<XPathRule, XPathRule>>>();
+		for (Entry<Pair<String, String>, List<String>> entry : pair2URLs.entrySet()) {
+			List<Pair<XPathRule, XPathRule>> paths = new ArrayList<Pair<XPathRule, XPathRule>>();
+			Map<String, List<Pair<XPathRule, XPathRule>>> pagePaths = pair2PagePaths.get(entry.getKey());
+			for (String url : entry.getValue()) {
+				List<Pair<XPathRule, XPathRule>> pathsOfPage = pagePaths.get(url);
+				if (pathsOfPage != null) {
+					paths.addAll(pathsOfPage);
 				}
 			}
+			pair2Paths.put(entry.getKey(), paths);
 		}
-		return false;
+		return pair2Paths;
+	}
+
+	private TextNodeIndex createTextNodeIndex(String url, String html, AhoCorasick automaton) {
+		return new TextNodeIndex(DOMCache.getInstance().getDocument(url, html), automaton);
 	}
 
-	private String getXPath(Node item) {
-		Element element = (Element) item;
-		String elementXpath = $(element).xpath();
-		return elementXpath;
+	private List<String> lookup(TextNodeIndex textNodes, String query, int patternId, boolean exactMatch) {
+		if (exactMatch) {// all nodes with a text that equals "query"
+			return textNodes.getExactMatches(query);
+		} else {// all nodes with a text that contains "query"
+			return textNodes.getSubstringMatches(patternId);
+		}
 	}
 
 	public CrawlIndex getIndex() {
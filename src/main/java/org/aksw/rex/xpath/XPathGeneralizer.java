@@ -4,18 +4,17 @@
 package org.aksw.rex.xpath;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.aksw.rex.util.Pair;
 import org.slf4j.LoggerFactory;
 
 import rules.xpath.XPathRule;
 
-import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -28,71 +27,27 @@ public class XPathGeneralizer {
 
 	private static org.slf4j.Logger log = LoggerFactory.getLogger(XPathGeneralizer.class);
 
-	private static final Pattern XPATH_SPLIT_REGEX = Pattern.compile("/(.+?)/");
-	private static final Pattern NODE_SPLIT_REGEX = Pattern.compile("(.+?)\\[(.+?)\\]");
 	private static final Set<String> CONTAINER_ELEMENTS = Sets.newHashSet("body", "div", "tr", "td");
-	private static String STAR = "*";
 	
 	public static XPathRule generalizeXPathExpressions(XPathRule xPath1, XPathRule xPath2) {
 		return new XPathRule(generalizeXPathExpressions(xPath1.toString(), xPath2.toString()));
 	}
 
 	/**
-	 * Warning: This is a preliminary simple implementation for generalizing 2
-	 * XPath expressions given as String objects.
+	 * Least general generalization of 2 XPath expressions given as String
+	 * objects, see {@link XPathSteps#generalize(XPathSteps)}.
 	 * 
 	 * @param xPath1
 	 * @param xPath2
 	 * @return
+	 * @throws IllegalArgumentException
+	 *             if an expression is empty or can not be parsed
 	 */
 	public static String generalizeXPathExpressions(String xPath1, String xPath2) {
 		if (xPath1.equals(xPath2)) {
 			return xPath1;
 		}
-		List<String> nodes1 = extractNodes(xPath1);
-		List<String> nodes2 = extractNodes(xPath2);
-
-		if (nodes1.size() != nodes2.size()) {
-			throw new UnsupportedOperationException("Can not handle XPath expressions with different length.");
-		} else {
-			StringBuilder generalizedXPath = new StringBuilder("/");
-			for (int i = 0; i < nodes1.size(); i++) {
-				String node1 = nodes1.get(i);
-				String node2 = nodes2.get(i);
-
-				// if both nodes are the same, just add one of the nodes the the
-				// generalized XPath expression
-				if (node1.equals(node2)) {
-					addNode(generalizedXPath, node1);
-				} else {
-					// if one of the nodes is * just return *
-					if (node1.equals(STAR) || node2.equals(STAR)) {
-						addNode(generalizedXPath, STAR);
-					} else {
-						Pair<String, Integer> pair1 = splitNode(node1);
-						Pair<String, Integer> pair2 = splitNode(node2);
-						// check if elements are the same
-						if (pair1.getLeft().equals(pair2.getLeft())) {
-							// both HTML elements are the same, thus we know
-							// that the position is different and
-							// we add just the element as node without any
-							// position
-							addNode(generalizedXPath, pair1.getLeft());
-						} else {
-							// both elements are different, thus we add *
-							addNode(generalizedXPath, STAR);
-						}
-					}
-				}
-			}
-			String xPath = generalizedXPath.toString();
-			// if last character is '/' remove it as it is not allowed
-			if (xPath.endsWith("/")) {
-				xPath = xPath.substring(0, xPath.length() - 1);
-			}
-			// log.debug("Generalized XPath: " + xPath);
-			return xPath;
-		}
+		return XPathSteps.parse(xPath1).generalize(XPathSteps.parse(xPath2)).toString();
 	}
 
 	/**
@@ -119,41 +74,16 @@ public class XPathGeneralizer {
 	}
 
 	/**
-	 * Generates generalized XPath expressions for subject and object
+	 * Generates generalized XPath expressions for subject and object. Rules
+	 * with an empty or unparseable path are skipped when a cluster is
+	 * generalized.
 	 * 
 	 * @param xPath1
 	 * @param xPath2
 	 * @return
 	 */
 	public static List<Pair<XPathRule, XPathRule>> generalizeXPathExpressions(List<Pair<XPathRule, XPathRule>> extractionRules){
-		List<Pair<XPathRule, XPathRule>> generalizedExtractionRules = Lists.newArrayList();
-		
-		//cluster by HTML element sequence
-		List<List<Pair<XPathRule, XPathRule>>> clusters = clusterByHTMLElementSequence(extractionRules);
-		
-		//for each cluster generalize the XPaths
-		for (List<Pair<XPathRule, XPathRule>> cluster : clusters) {
-
-			log.debug("Processing cluster with size " + cluster.size());
-			XPathRule generalizedSubjectXPath = cluster.get(0).getLeft();
-			XPathRule generalizedObjectXPath = cluster.get(0).getRight();
-
-			if (cluster.size() > 1) {
-				for (Pair<XPathRule, XPathRule> rule : cluster) {
-					XPathRule subjectXPath = rule.getLeft();
-					XPathRule objectXPath = rule.getRight();
-
-					generalizedSubjectXPath = XPathGeneralizer.generalizeXPathExpressions(generalizedSubjectXPath, subjectXPath);
-					generalizedObjectXPath = XPathGeneralizer.generalizeXPathExpressions(generalizedObjectXPath, objectXPath);
-				}
-			}
-
-			log.debug("Generalized XPath for subjects:" + generalizedSubjectXPath);
-			log.debug("Generalized XPath for objects:" + generalizedObjectXPath);
-			
-			generalizedExtractionRules.add(new Pair<XPathRule, XPathRule>(generalizedSubjectXPath, generalizedObjectXPath));
-		}
-		return generalizedExtractionRules;
+		return Lists.newArrayList(generateXPathExtractionRulesWithSupport(extractionRules).keySet());
 	}
 	
 	/**
@@ -163,7 +93,19 @@ public class XPathGeneralizer {
 	 * @return
 	 */
 	public static List<Pair<XPathRule, XPathRule>> generateXPathExtractionRules(List<Pair<XPathRule, XPathRule>> extractionRules){
-		List<Pair<XPathRule, XPathRule>> generalizedExtractionRules = Lists.newArrayList();
+		return Lists.newArrayList(generateXPathExtractionRulesWithSupport(extractionRules).keySet());
+	}
+	
+	/**
+	 * Generates generalized XPath expressions for subject and object together
+	 * with the number of extraction rules they generalize, i.e. the size of
+	 * the cluster the rule was generated from. Rules with an empty or
+	 * unparseable path are logged and skipped when a cluster is generalized.
+	 * @param extractionRules
+	 * @return generalized rules mapped to their support in the order of the clusters
+	 */
+	public static Map<Pair<XPathRule, XPathRule>, Integer> generateXPathExtractionRulesWithSupport(List<Pair<XPathRule, XPathRule>> extractionRules){
+		Map<Pair<XPathRule, XPathRule>, Integer> generalizedExtractionRules = new LinkedHashMap<Pair<XPathRule, XPathRule>, Integer>();
 		
 		//cluster by HTML element sequence
 		List<List<Pair<XPathRule, XPathRule>>> clusters = clusterByHTMLElementSequence(extractionRules);
@@ -174,14 +116,27 @@ public class XPathGeneralizer {
 			XPathRule generalizedSubjectXPath = cluster.get(0).getLeft();
 			XPathRule generalizedObjectXPath = cluster.get(0).getRight();
 
+			int support = cluster.size();
 			if (cluster.size() > 1) {
+				//generalize on the parsed steps and build the rules only once
+				XPathSteps subjectSteps = null;
+				XPathSteps objectSteps = null;
+				support = 0;
 				for (Pair<XPathRule, XPathRule> rule : cluster) {
-					XPathRule subjectXPath = rule.getLeft();
-					XPathRule objectXPath = rule.getRight();
-
-					generalizedSubjectXPath = XPathGeneralizer.generalizeXPathExpressions(generalizedSubjectXPath, subjectXPath);
-					generalizedObjectXPath = XPathGeneralizer.generalizeXPathExpressions(generalizedObjectXPath, objectXPath);
+					XPathSteps subject = parse(rule.getLeft());
+					XPathSteps object = parse(rule.getRight());
+					if (subject == null || object == null) {
+						continue;
+					}
+					subjectSteps = subjectSteps == null ? subject : subjectSteps.generalize(subject);
+					objectSteps = objectSteps == null ? object : objectSteps.generalize(object);
+					support++;
+				}
+				if (support == 0) {
+					continue;
 				}
+				generalizedSubjectXPath = new XPathRule(subjectSteps.toString());
+				generalizedObjectXPath = new XPathRule(objectSteps.toString());
 			}
 
 			log.debug("Generalized XPath for subjects:" + generalizedSubjectXPath);
@@ -189,95 +144,112 @@ public class XPathGeneralizer {
 			
 			Pair<XPathRule, XPathRule> rule = new Pair<XPathRule, XPathRule>(generalizedSubjectXPath, generalizedObjectXPath);
 			
-			generalizedExtractionRules.add(rule);
+			Integer previousSupport = generalizedExtractionRules.get(rule);
+			generalizedExtractionRules.put(rule, (previousSupport == null ? 0 : previousSupport) + support);
 		}
 		return generalizedExtractionRules;
 	}
 	
+	/**
+	 * Clusters the pairs by the sequence of HTML elements of subject and
+	 * object path. The key of each pair is computed once and the clusters are
+	 * looked up by hash, i.e. the clustering is linear in the number of pairs.
+	 * Afterwards clusters whose subject and object paths align with those of
+	 * an earlier cluster, see {@link XPathSteps#alignsWith(XPathSteps)}, are
+	 * merged into it, i.e. pairs whose paths differ by additional elements are
+	 * generalized together.
+	 * @param xPathsPairs
+	 * @return clusters in the order of their first pair
+	 */
 	private static List<List<Pair<XPathRule, XPathRule>>> clusterByHTMLElementSequence(List<Pair<XPathRule, XPathRule>> xPathsPairs){
-		List<List<Pair<XPathRule, XPathRule>>> clusters = new ArrayList<List<Pair<XPathRule, XPathRule>>>();
-		
-		Iterator<Pair<XPathRule, XPathRule>> iter = xPathsPairs.iterator();
-		//initialize with the first pair
-		clusters.add(Lists.newArrayList(iter.next()));
+		Map<String, List<Pair<XPathRule, XPathRule>>> clusters = new LinkedHashMap<String, List<Pair<XPathRule, XPathRule>>>();
 		
 		//for each pair add to corresponding cluster or create new one
-		Pair<XPathRule, XPathRule> rule;
-		while(iter.hasNext()){
-			rule = iter.next();
-			
-			boolean added = false;
-			for (List<Pair<XPathRule, XPathRule>> cluster : clusters) {
-				Pair<XPathRule, XPathRule> representative = cluster.get(0);
-				
-				List<String> representativeSubjectNodes = extractHTMLElementSequence(representative.getLeft());
-				List<String> representativeObjectNodes = extractHTMLElementSequence(representative.getRight());
-				
-				List<String> subjectNodes = extractHTMLElementSequence(rule.getLeft());
-				List<String> objectNodes = extractHTMLElementSequence(rule.getRight());
-				if(representativeSubjectNodes.equals(subjectNodes) && representativeObjectNodes.equals(objectNodes)){
-					cluster.add(rule);
-					added = true;
-					break;
-				}
-			}
-			if(!added){
-				List<Pair<XPathRule, XPathRule>> cluster = Lists.newArrayList();
-				cluster.add(rule);
-				clusters.add(cluster);
+		for (Pair<XPathRule, XPathRule> rule : xPathsPairs) {
+			String key = (extractHTMLElementSequence(rule.getLeft()) + " " + extractHTMLElementSequence(rule.getRight())).intern();
+			List<Pair<XPathRule, XPathRule>> cluster = clusters.get(key);
+			if(cluster == null){
+				cluster = Lists.newArrayList();
+				clusters.put(key, cluster);
 			}
+			cluster.add(rule);
 		}
-		return clusters;
-	}
-
-	private static void addNode(StringBuilder xPath, String node) {
-		xPath.append(node).append("/");
+		return mergeAlignedClusters(clusters.values());
 	}
 
 	/**
-	 * Split node into HTML element and position.
-	 * 
-	 * @param node
-	 * @return
+	 * Merges each cluster into the first earlier cluster whose first pair
+	 * aligns with its first pair. Clusters with an unparseable first pair are
+	 * kept as they are.
+	 * @param clusters
+	 * @return merged clusters in the order of their first pair
 	 */
-	private static Pair<String, Integer> splitNode(String node) {
-		if (node.contains("[")) {
-			final Matcher matcher = NODE_SPLIT_REGEX.matcher(node);
-			if (matcher.find()) {
-				String element = matcher.group(1);
-				Integer position = Integer.parseInt(matcher.group(2));
-				return new Pair<String, Integer>(element, position);
+	private static List<List<Pair<XPathRule, XPathRule>>> mergeAlignedClusters(Collection<List<Pair<XPathRule, XPathRule>>> clusters){
+		List<List<Pair<XPathRule, XPathRule>>> merged = new ArrayList<List<Pair<XPathRule, XPathRule>>>();
+		List<Pair<XPathSteps, XPathSteps>> representatives = new ArrayList<Pair<XPathSteps, XPathSteps>>();
+		for (List<Pair<XPathRule, XPathRule>> cluster : clusters) {
+			XPathSteps subject = parse(cluster.get(0).getLeft());
+			XPathSteps object = parse(cluster.get(0).getRight());
+			int target = -1;
+			if (subject != null && object != null) {
+				for (int i = 0; i < representatives.size() && target < 0; i++) {
+					Pair<XPathSteps, XPathSteps> representative = representatives.get(i);
+					if (representative != null && representative.getLeft().alignsWith(subject) && representative.getRight().alignsWith(object)) {
+						target = i;
+					}
+				}
+			}
+			if (target >= 0) {
+				log.debug("Merging cluster of " + cluster.get(0) + " into cluster of " + merged.get(target).get(0));
+				merged.get(target).addAll(cluster);
+			} else {
+				merged.add(cluster);
+				representatives.add(subject == null || object == null ? null : new Pair<XPathSteps, XPathSteps>(subject, object));
 			}
 		}
-		return new Pair<String, Integer>(node, null);
+		return merged;
 	}
 
 	/**
-	 * Extract the nodes on the path, i.e. basically we try to get here all
-	 * between / and / .
 	 * 
-	 * @return
+	 * @param xPath
+	 * @return the steps of the expression, null if it is empty or can not be
+	 *         parsed
 	 */
-	private static List<String> extractNodes(String xPathExpression) {
-		return Lists.newArrayList(Splitter.on('/').omitEmptyStrings().trimResults().split(xPathExpression));
+	private static XPathSteps parse(XPathRule xPath) {
+		try {
+			XPathSteps steps = XPathSteps.parse(xPath.toString());
+			if (steps.length() > 0) {
+				return steps;
+			}
+			log.warn("Skipping empty XPath expression");
+		} catch (IllegalArgumentException e) {
+			log.warn("Skipping XPath expression: " + e.getMessage());
+		}
+		return null;
 	}
 
 	/**
 	 * Extract the HTML elements on the path, i.e. basically we try to get here
 	 * all between / and / without [(0-9)*].
 	 * 
-	 * @return
+	 * @return the elements joined by /
 	 */
-	private static List<String> extractHTMLElementSequence(XPathRule xPath) {
-		List<String> nodes = Lists.newArrayList();
-		for (String node : Splitter.on('/').omitEmptyStrings().trimResults().split(xPath.toString())) {
-			if (node.contains("[")) {
-				nodes.add(node.substring(0, node.indexOf('[')));
-			} else {
-				nodes.add(node);
+	private static String extractHTMLElementSequence(XPathRule xPath) {
+		String path = xPath.toString();
+		StringBuilder nodes = new StringBuilder(path.length());
+		int depth = 0;
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == '[') {
+				depth++;
+			} else if (c == ']') {
+				depth--;
+			} else if (depth == 0 && c != ' ') {
+				nodes.append(c);
 			}
 		}
-		return nodes;
+		return nodes.toString();
 	}
 
 }
@@ -4,6 +4,7 @@ import java.net.URL;
 import java.util.List;
 import java.util.Set;
 
+import org.aksw.rex.crawler.CrawlIndex;
 import org.aksw.rex.results.ExtractionResult;
 import org.aksw.rex.util.Pair;
 
@@ -39,5 +40,11 @@ public interface XPathLearner {
 	 * @param useExactMatch the useExactMatch to set
 	 */
     void setUseExactMatch(boolean useExactMatch);
+    
+    /**
+     * 
+     * @return the index the rules are learned on and applied to
+     */
+    CrawlIndex getIndex();
 
 }
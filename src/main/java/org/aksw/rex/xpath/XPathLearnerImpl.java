@@ -3,33 +3,31 @@
  */
 package org.aksw.rex.xpath;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.net.URL;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.DOMCache;
 import org.aksw.rex.results.ExtractionResult;
-import org.aksw.rex.results.ExtractionResultImpl;
 import org.aksw.rex.util.Pair;
 import org.aksw.rex.util.SurfaceFormGenerator;
 import org.dllearner.kb.sparql.SparqlEndpoint;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import rules.xpath.XPathRule;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.hp.hpl.jena.rdf.model.Resource;
 
@@ -45,120 +43,210 @@ public class XPathLearnerImpl implements XPathLearner{
 	private XPathExtractor xPathExtractor;
 	private SurfaceFormGenerator surfaceFormGenerator;
 	
-	private XPath xpath;
+	private int numberOfExtractionThreads = Runtime.getRuntime().availableProcessors();
 
 	private SparqlEndpoint endpoint;
 	private boolean useExactMatch = true;
 	
+	private ExecutorService executor;
+	private Semaphore sparqlPermits = new Semaphore(1);
+	
 	public XPathLearnerImpl(XPathExtractor xPathExtractor, SparqlEndpoint endpoint) {
 		this.xPathExtractor = xPathExtractor;
 		this.endpoint = endpoint;
 		
-		XPathFactory factory = XPathFactory.newInstance();
-		xpath = factory.newXPath();
-		
-		surfaceFormGenerator = new SurfaceFormGenerator(endpoint, "sparql-cache");
+		surfaceFormGenerator = SurfaceFormGenerator.getInstance(endpoint, "sparql-cache");
+	}
+
+	/**
+	 * Enables the parallel processing of the positive examples. The surface
+	 * forms of the examples are retrieved concurrently, then the XPaths of the
+	 * surface forms of each example are extracted concurrently. In sequential
+	 * mode all pairs are extracted in one batch, i.e. each page is walked only
+	 * once. In both modes the rules are merged in the order of the sorted
+	 * examples, i.e. the result is the same.
+	 * 
+	 * @param executor
+	 *            executor running the tasks of the examples, null for
+	 *            sequential processing
+	 * @param maxConcurrentQueries
+	 *            maximum number of concurrent requests to the SPARQL endpoint
+	 */
+	public void setExecutor(ExecutorService executor, int maxConcurrentQueries) {
+		this.executor = executor;
+		this.sparqlPermits = new Semaphore(Math.max(1, maxConcurrentQueries));
 	}
 
 	/* (non-Javadoc)
 	 * @see org.aksw.rex.xpath.XPathLearner#getXPathExpressions(java.util.Set, java.util.Set, java.net.URL)
 	 */
 	@Override
-	public List<Pair<XPathRule, XPathRule>> getXPathExpressions(Set<Pair<Resource, Resource>> posExamples, URL domain) {
+	public List<Pair<XPathRule, XPathRule>> getXPathExpressions(Set<Pair<Resource, Resource>> posExamples, final URL domain) {
+		//process the examples in a fixed order to get reproducible rules
+		List<Pair<Resource, Resource>> examples = new ArrayList<Pair<Resource, Resource>>(posExamples);
+		Collections.sort(examples, new Comparator<Pair<Resource, Resource>>() {
+			@Override
+			public int compare(Pair<Resource, Resource> p1, Pair<Resource, Resource> p2) {
+				int diff = p1.getLeft().toString().compareTo(p2.getLeft().toString());
+				return diff != 0 ? diff : p1.getRight().toString().compareTo(p2.getRight().toString());
+			}
+		});
 		
-		//generate XPath extraction rules for each positive example
+		//load the surface forms of all examples with a few batch queries
+		List<String> uris = new ArrayList<String>();
+		for (Pair<Resource, Resource> example : examples) {
+			uris.add(example.getLeft().getURI());
+			uris.add(example.getRight().getURI());
+		}
+		uris.removeAll(Collections.singleton(null));
+		surfaceFormGenerator.prefetch(endpoint, uris);
+		
+		//collect the pairs of surface forms of all positive examples, each pair only once
+		List<List<Pair<String, String>>> surfaceFormPairsPerExample = getSurfaceFormPairs(examples);
+		Set<Pair<String, String>> surfaceFormPairs = new LinkedHashSet<Pair<String, String>>();
+		List<List<Pair<String, String>>> chunks = new ArrayList<List<Pair<String, String>>>();
+		for (List<Pair<String, String>> pairs : surfaceFormPairsPerExample) {
+			List<Pair<String, String>> chunk = new ArrayList<Pair<String, String>>();
+			for (Pair<String, String> pair : pairs) {
+				if (surfaceFormPairs.add(pair)) {
+					chunk.add(pair);
+				}
+			}
+			chunks.add(chunk);
+		}
+		//one batch in sequential mode, one chunk per example in parallel mode, the rules of each pair do not depend
+		//on the other pairs of its chunk, i.e. concatenating them in the order of the pairs gives the same rules
+		if (executor == null) {
+			chunks = Collections.singletonList((List<Pair<String, String>>) new ArrayList<Pair<String, String>>(surfaceFormPairs));
+		}
+		//generate XPath extraction rules for each chunk of pairs
+		log.debug("Generating XPath extraction rules for " + surfaceFormPairs.size() + " pairs of surface forms...");
 		List<Pair<XPathRule, XPathRule>> extractionRules = Lists.newArrayList();
-		for (Pair<Resource,Resource> pair : posExamples) {
-			Resource subject = pair.getLeft();
-			Resource object = pair.getRight();
-			//get the surface forms
-			Set<String> subjectSurfaceForms = surfaceFormGenerator.getSurfaceForms(endpoint, subject.getURI());
-			Set<String> objectSurfaceForms = surfaceFormGenerator.getSurfaceForms(endpoint, object.getURI());
-			
-			for (String sub : subjectSurfaceForms) {
-				for (String obj : objectSurfaceForms) {
-					try {
-						log.debug("Generating XPath extraction rules for '" + sub + "' and '" + obj + "'...");
-						List<Pair<XPathRule, XPathRule>> extractionRulesTmp = xPathExtractor.extractPathsFromCrawlIndex(sub, obj, domain.toString(), useExactMatch);
-						log.debug("...got " + extractionRulesTmp.size() + " XPath extraction rules.");
-						extractionRules.addAll(extractionRulesTmp);
-					} catch (FileNotFoundException e) {
-						e.printStackTrace();
-					} catch (XPathExpressionException e) {
-						e.printStackTrace();
-					} catch (ParserConfigurationException e) {
-						e.printStackTrace();
-					} catch (SAXException e) {
-						e.printStackTrace();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
+		for (List<Pair<XPathRule, XPathRule>> extractionRulesTmp : invokeAll(chunks, new Function<List<Pair<String, String>>, List<Pair<XPathRule, XPathRule>>>() {
+			@Override
+			public List<Pair<XPathRule, XPathRule>> apply(List<Pair<String, String>> chunk) {
+				List<Pair<XPathRule, XPathRule>> rules = Lists.newArrayList();
+				for (List<Pair<XPathRule, XPathRule>> rulesOfPair : xPathExtractor.extractPathsFromCrawlIndex(chunk, domain.toString(), useExactMatch).values()) {
+					rules.addAll(rulesOfPair);
 				}
+				return rules;
 			}
+		})) {
+			extractionRules.addAll(extractionRulesTmp);
 		}
+		log.debug("...got " + extractionRules.size() + " XPath extraction rules.");
 		
-		//generate generalized extraction rules
-		List<Pair<XPathRule, XPathRule>> generalizedExtractionRules = XPathGeneralizer.generateXPathExtractionRules(extractionRules);
+		//generate generalized extraction rules, the rules generalizing most pairs first
+		final Map<Pair<XPathRule, XPathRule>, Integer> generalizedExtractionRules = XPathGeneralizer.generateXPathExtractionRulesWithSupport(extractionRules);
+		List<Pair<XPathRule, XPathRule>> rankedExtractionRules = new ArrayList<Pair<XPathRule, XPathRule>>(generalizedExtractionRules.keySet());
+		Collections.sort(rankedExtractionRules, new Comparator<Pair<XPathRule, XPathRule>>() {
+			@Override
+			public int compare(Pair<XPathRule, XPathRule> r1, Pair<XPathRule, XPathRule> r2) {
+				return generalizedExtractionRules.get(r2).compareTo(generalizedExtractionRules.get(r1));
+			}
+		});
 		
-		return generalizedExtractionRules;
+		return rankedExtractionRules;
 	}
 
-	/* (non-Javadoc)
-	 * @see org.aksw.rex.xpath.XPathLearner#getExtractionResults(java.util.List)
+	/**
+	 * 
+	 * @param examples
+	 * @return for each example the pairs of the surface forms of subject and
+	 *         object
 	 */
-	@Override
-	public Set<ExtractionResult> getExtractionResults(List<Pair<XPathRule, XPathRule>> extractionRules, URL domain) {
-		Set<ExtractionResult> extractionResults = new HashSet<ExtractionResult>();
-		
-		//get documents of domain
-		List<Pair<String, String>> documents = xPathExtractor.getIndex().getDocumentsWithDomain(domain.toString());
-		
-		//for each document each of the rules will be applied
-		for (Pair<String, String> document : documents) {
-			String url = document.getLeft();
-			String html = document.getRight();
-			try {
-				Document doc = Jsoup.parse(html);
-//				log.debug("Trying URL " + url);
-
-				for (Pair<XPathRule, XPathRule> rule : extractionRules) {
-					String subjectXPath = rule.getLeft().toString();
-					String objectXPath = rule.getRight().toString();
-
-					Set<String> subjects = new HashSet<String>();
-					Set<String> objects = new HashSet<String>();
-
-					//get nodes applying rule for subject
-					NodeList nodeList = (NodeList) xpath.evaluate(subjectXPath,
-							org.aksw.rex.crawler.DOMBuilder.jsoup2DOM(doc), XPathConstants.NODESET);
-					for (int i = 0; i < nodeList.getLength(); i++) {
-						Node item = nodeList.item(i);
-						subjects.add(item.getTextContent());
-					}
-
-					//get nodes applying rule for object
-					nodeList = (NodeList) xpath.evaluate(objectXPath, org.aksw.rex.crawler.DOMBuilder.jsoup2DOM(doc),
-							XPathConstants.NODESET);
-					for (int i = 0; i < nodeList.getLength(); i++) {
-						Node item = nodeList.item(i);
-						objects.add(item.getTextContent());
-					}
-					
-					//add extraction results for each subject-object pair
-					for (String sub : subjects) {
-						for (String obj : objects) {
-							extractionResults.add(new ExtractionResultImpl(sub, obj,""));
-						}
+	private List<List<Pair<String, String>>> getSurfaceFormPairs(List<Pair<Resource, Resource>> examples) {
+		return invokeAll(examples, new Function<Pair<Resource, Resource>, List<Pair<String, String>>>() {
+			@Override
+			public List<Pair<String, String>> apply(Pair<Resource, Resource> pair) {
+				//get the surface forms
+				Set<String> subjectSurfaceForms = getSurfaceForms(pair.getLeft());
+				Set<String> objectSurfaceForms = getSurfaceForms(pair.getRight());
+				
+				List<Pair<String, String>> surfaceFormPairs = new ArrayList<Pair<String, String>>();
+				for (String sub : subjectSurfaceForms) {
+					for (String obj : objectSurfaceForms) {
+						surfaceFormPairs.add(new Pair<String, String>(sub, obj));
 					}
 				}
+				return surfaceFormPairs;
+			}
+		});
+	}
 
-			} catch (Exception e) {
-				log.debug("Could not process URL: " + url);
+	private Set<String> getSurfaceForms(Resource resource) {
+		sparqlPermits.acquireUninterruptibly();
+		try {
+			return surfaceFormGenerator.getSurfaceForms(endpoint, resource.getURI());
+		} finally {
+			sparqlPermits.release();
+		}
+	}
+
+	/**
+	 * applies the function to all inputs, on the executor if there is one
+	 * 
+	 * @param inputs
+	 * @param function
+	 * @return the outputs in the order of the inputs, failed inputs are
+	 *         skipped
+	 */
+	private <F, T> List<T> invokeAll(List<F> inputs, final Function<F, T> function) {
+		List<T> outputs = new ArrayList<T>();
+		if (executor == null) {
+			for (F input : inputs) {
+				try {
+					outputs.add(function.apply(input));
+				} catch (Exception e) {
+					log.error("Could not process " + input + ": " + e.getLocalizedMessage());
+				}
 			}
+			return outputs;
 		}
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (final F input : inputs) {
+			futures.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return function.apply(input);
+				}
+			}));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				outputs.add(futures.get(i).get());
+			} catch (ExecutionException e) {
+				log.error("Could not process " + inputs.get(i) + ": " + e.getCause().getLocalizedMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<T> future : futures) {
+					future.cancel(true);
+				}
+				break;
+			}
+		}
+		return outputs;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.aksw.rex.xpath.XPathLearner#getExtractionResults(java.util.List)
+	 */
+	@Override
+	public Set<ExtractionResult> getExtractionResults(List<Pair<XPathRule, XPathRule>> extractionRules, URL domain) {
+		//apply all rules to each document of the domain in parallel
+		ExtractionEngine engine = new ExtractionEngine(xPathExtractor.getIndex(), numberOfExtractionThreads);
+		Set<ExtractionResult> extractionResults = engine.extract(extractionRules, domain.toString());
+		DOMCache.getInstance().logStats();
 		return extractionResults;
 	}
 	
+	/**
+	 * @param numberOfExtractionThreads the number of threads applying the extraction rules
+	 */
+	public void setNumberOfExtractionThreads(int numberOfExtractionThreads) {
+		this.numberOfExtractionThreads = numberOfExtractionThreads;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.aksw.rex.xpath.XPathLearner#setUseExactMatch(boolean)
 	 */
@@ -167,4 +255,12 @@ public class XPathLearnerImpl implements XPathLearner{
 		this.useExactMatch = useExactMatch;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.aksw.rex.xpath.XPathLearner#getIndex()
+	 */
+	@Override
+	public CrawlIndex getIndex() {
+		return xPathExtractor.getIndex();
+	}
+
 }
@@ -0,0 +1,112 @@
+package org.aksw.rex.xpath;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import rules.xpath.XPathRule;
+
+/**
+ * Registry of compiled XPath expressions keyed by the expression string. The
+ * JAXP objects are not thread-safe, hence each thread holds its own
+ * {@link XPath} and its own compiled expressions.
+ *
+ * @author Lorenz Buehmann
+ *
+ */
+public class XPathRegistry {
+	/**
+	 * maximum number of compiled expressions kept per thread
+	 */
+	private static final int MAX_EXPRESSIONS_PER_THREAD = 1000;
+
+	private static final ThreadLocal<XPath> xpath = new ThreadLocal<XPath>() {
+		@Override
+		protected XPath initialValue() {
+			return XPathFactory.newInstance().newXPath();
+		}
+	};
+
+	private static final ThreadLocal<Map<String, XPathExpression>> expressions = new ThreadLocal<Map<String, XPathExpression>>() {
+		@Override
+		protected Map<String, XPathExpression> initialValue() {
+			return new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+					return size() > MAX_EXPRESSIONS_PER_THREAD;
+				}
+			};
+		}
+	};
+
+	private XPathRegistry() {
+	}
+
+	/**
+	 *
+	 * @return the XPath object of the current thread
+	 */
+	public static XPath getXPath() {
+		return xpath.get();
+	}
+
+	/**
+	 *
+	 * @param expression
+	 * @return the compiled expression for the current thread
+	 * @throws XPathExpressionException
+	 */
+	public static XPathExpression compile(String expression) throws XPathExpressionException {
+		Map<String, XPathExpression> compiled = expressions.get();
+		XPathExpression xPathExpression = compiled.get(expression);
+		if (xPathExpression == null) {
+			xPathExpression = xpath.get().compile(expression);
+			compiled.put(expression, xPathExpression);
+		}
+		return xPathExpression;
+	}
+
+	/**
+	 *
+	 * @param rule
+	 * @return the compiled expression of the rule for the current thread
+	 * @throws XPathExpressionException
+	 */
+	public static XPathExpression compile(XPathRule rule) throws XPathExpressionException {
+		return compile(rule.toString());
+	}
+
+	/**
+	 * evaluates the compiled expression on the given node
+	 *
+	 * @param expression
+	 * @param node
+	 * @return all matching nodes
+	 * @throws XPathExpressionException
+	 */
+	public static NodeList evaluate(String expression, Node node) throws XPathExpressionException {
+		return (NodeList) compile(expression).evaluate(node, XPathConstants.NODESET);
+	}
+
+	/**
+	 * evaluates the compiled rule on the given node
+	 *
+	 * @param rule
+	 * @param node
+	 * @return all matching nodes
+	 * @throws XPathExpressionException
+	 */
+	public static NodeList evaluate(XPathRule rule, Node node) throws XPathExpressionException {
+		return evaluate(rule.toString(), node);
+	}
+}
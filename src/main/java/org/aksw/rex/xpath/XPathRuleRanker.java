@@ -0,0 +1,302 @@
+package org.aksw.rex.xpath;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.DOMCache;
+import org.aksw.rex.util.Pair;
+import org.aksw.rex.util.SurfaceFormGenerator;
+import org.dllearner.kb.sparql.SparqlEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import rules.xpath.XPathRule;
+
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * Ranks pairs of extraction rules by how well they reproduce the positive
+ * examples. The pages of the examples in the domain are split into a training
+ * and a held-out part. The support of a rule is the number of training pages
+ * on which it extracts the pair of the example, its precision is the fraction
+ * of held-out pages with extractions on which it extracts the pair of the
+ * example, smoothed such that a rule without extractions on the held-out
+ * pages gets 0.5 instead of a perfect precision. The score of a rule is
+ * precision * support / #training pages. The examples are sorted before the
+ * pages are shuffled with a fixed seed, i.e. the split is reproducible.
+ * Rules are evaluated page by page and dropped as soon as they can not reach
+ * the score of the current top-N anymore.
+ *
+ * @author Lorenz Buehmann
+ *
+ */
+public class XPathRuleRanker {
+	private static Logger log = LoggerFactory.getLogger(XPathRuleRanker.class);
+
+	private CrawlIndex index;
+	private SurfaceFormGenerator surfaceFormGenerator;
+	private SparqlEndpoint endpoint;
+	private DOMCache domCache = DOMCache.getInstance();
+	private double heldOutFraction = 0.3;
+	private int maxPagesPerExample = 5;
+	private long seed = 123;
+
+	/**
+	 *
+	 * @param index
+	 *            index containing the pages of the domain
+	 * @param surfaceFormGenerator
+	 * @param endpoint
+	 *            endpoint used to retrieve the surface forms of the examples
+	 */
+	public XPathRuleRanker(CrawlIndex index, SurfaceFormGenerator surfaceFormGenerator, SparqlEndpoint endpoint) {
+		this.index = index;
+		this.surfaceFormGenerator = surfaceFormGenerator;
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * a page of a positive example together with the surface forms of the
+	 * example
+	 */
+	private static class ExamplePage {
+		String url;
+		String html;
+		Set<String> subjects;
+		Set<String> objects;
+
+		ExamplePage(String url, String html, Set<String> subjects, Set<String> objects) {
+			this.url = url;
+			this.html = html;
+			this.subjects = subjects;
+			this.objects = objects;
+		}
+	}
+
+	/**
+	 *
+	 * @param extractionRules
+	 *            candidate rules, best rules first if known
+	 * @param posExamples
+	 * @param domain
+	 * @param topN
+	 *            number of rules to return
+	 * @return the topN rules with the highest score, best rule first
+	 */
+	public List<Pair<XPathRule, XPathRule>> rank(List<Pair<XPathRule, XPathRule>> extractionRules, Set<Pair<Resource, Resource>> posExamples, URL domain, int topN) {
+		Map<Pair<XPathRule, XPathRule>, Double> scores = score(extractionRules, posExamples, domain, topN);
+		List<Pair<XPathRule, XPathRule>> ranking = new ArrayList<Pair<XPathRule, XPathRule>>(scores.keySet());
+		return ranking.subList(0, Math.min(topN, ranking.size()));
+	}
+
+	/**
+	 *
+	 * @param extractionRules
+	 *            candidate rules, best rules first if known
+	 * @param posExamples
+	 * @param domain
+	 * @param topN
+	 *            rules which can not reach the score of the topN rules are
+	 *            not evaluated completely
+	 * @return the completely evaluated rules with their scores, best rule
+	 *         first
+	 */
+	public Map<Pair<XPathRule, XPathRule>, Double> score(List<Pair<XPathRule, XPathRule>> extractionRules, Set<Pair<Resource, Resource>> posExamples, URL domain, int topN) {
+		Map<Pair<XPathRule, XPathRule>, Double> scores = new LinkedHashMap<Pair<XPathRule, XPathRule>, Double>();
+		if (extractionRules.size() <= 1) {
+			for (Pair<XPathRule, XPathRule> rule : extractionRules) {
+				scores.put(rule, 1d);
+			}
+			return scores;
+		}
+
+		// split the example pages into training and held-out pages
+		List<ExamplePage> pages = getExamplePages(posExamples, domain);
+		Collections.shuffle(pages, new Random(seed));
+		int heldOut = (int) Math.round(pages.size() * heldOutFraction);
+		List<ExamplePage> trainingPages = pages.subList(heldOut, pages.size());
+		List<ExamplePage> heldOutPages = pages.subList(0, heldOut);
+		log.info("Ranking " + extractionRules.size() + " rules on " + trainingPages.size() + " training and " + heldOutPages.size() + " held-out pages");
+		if (trainingPages.isEmpty()) {
+			for (Pair<XPathRule, XPathRule> rule : extractionRules) {
+				scores.put(rule, 0d);
+			}
+			return scores;
+		}
+
+		List<Double> topScores = new ArrayList<Double>();
+		int pruned = 0;
+		for (Pair<XPathRule, XPathRule> rule : extractionRules) {
+			// the score of the topN-th rule so far
+			double threshold = topScores.size() < topN ? -1 : topScores.get(topN - 1);
+
+			// support on the training pages
+			int support = 0;
+			boolean dropped = false;
+			for (int i = 0; i < trainingPages.size(); i++) {
+				if (Boolean.TRUE.equals(reproduces(rule, trainingPages.get(i)))) {
+					support++;
+				}
+				int remaining = trainingPages.size() - i - 1;
+				if ((double) (support + remaining) / trainingPages.size() < threshold) {
+					dropped = true;
+					break;
+				}
+			}
+			if (dropped) {
+				pruned++;
+				continue;
+			}
+
+			// precision on the held-out pages
+			int extracted = 0;
+			int correct = 0;
+			for (ExamplePage page : heldOutPages) {
+				Boolean reproduced = reproduces(rule, page);
+				if (reproduced != null) {
+					extracted++;
+					if (reproduced) {
+						correct++;
+					}
+				}
+			}
+			// Laplace smoothing, rules not checked on the held-out pages get 0.5
+			double precision = (correct + 1d) / (extracted + 2d);
+			double score = precision * support / trainingPages.size();
+			log.debug("Rule " + rule + ": support " + support + ", precision " + precision);
+
+			scores.put(rule, score);
+			topScores.add(score);
+			Collections.sort(topScores, Collections.reverseOrder());
+		}
+		log.info("Dropped " + pruned + " rules early");
+
+		List<Entry<Pair<XPathRule, XPathRule>, Double>> entries = new ArrayList<Entry<Pair<XPathRule, XPathRule>, Double>>(scores.entrySet());
+		Collections.sort(entries, new Comparator<Entry<Pair<XPathRule, XPathRule>, Double>>() {
+			@Override
+			public int compare(Entry<Pair<XPathRule, XPathRule>, Double> e1, Entry<Pair<XPathRule, XPathRule>, Double> e2) {
+				return Double.compare(e2.getValue(), e1.getValue());
+			}
+		});
+		scores.clear();
+		for (Entry<Pair<XPathRule, XPathRule>, Double> entry : entries) {
+			scores.put(entry.getKey(), entry.getValue());
+		}
+		return scores;
+	}
+
+	/**
+	 *
+	 * @param rule
+	 * @param page
+	 * @return null if the rule extracts nothing on the page, otherwise whether
+	 *         it extracts the pair of the example of the page
+	 */
+	private Boolean reproduces(Pair<XPathRule, XPathRule> rule, ExamplePage page) {
+		try {
+			Document doc = domCache.getDocument(page.url, page.html);
+			Set<String> subjects = getTextContents(rule.getLeft(), doc);
+			Set<String> objects = getTextContents(rule.getRight(), doc);
+			if (subjects.isEmpty() || objects.isEmpty()) {
+				return null;
+			}
+			return !Collections.disjoint(subjects, page.subjects) && !Collections.disjoint(objects, page.objects);
+		} catch (Exception e) {
+			log.debug("Could not apply rule " + rule + " on " + page.url);
+			return null;
+		}
+	}
+
+	private Set<String> getTextContents(XPathRule rule, Document doc) throws Exception {
+		Set<String> texts = new HashSet<String>();
+		NodeList nodeList = XPathRegistry.evaluate(rule, doc);
+		for (int i = 0; i < nodeList.getLength(); i++) {
+			texts.add(TextNodeIndex.normalize(nodeList.item(i).getTextContent()));
+		}
+		return texts;
+	}
+
+	private List<ExamplePage> getExamplePages(Set<Pair<Resource, Resource>> posExamples, URL domain) {
+		List<ExamplePage> pages = new ArrayList<ExamplePage>();
+		Set<String> urls = new HashSet<String>();
+		// the order of the pages must not depend on the order of the set
+		List<Pair<Resource, Resource>> examples = new ArrayList<Pair<Resource, Resource>>(posExamples);
+		Collections.sort(examples, new Comparator<Pair<Resource, Resource>>() {
+			@Override
+			public int compare(Pair<Resource, Resource> p1, Pair<Resource, Resource> p2) {
+				int diff = p1.getLeft().toString().compareTo(p2.getLeft().toString());
+				return diff != 0 ? diff : p1.getRight().toString().compareTo(p2.getRight().toString());
+			}
+		});
+		for (Pair<Resource, Resource> example : examples) {
+			Set<String> subjects = normalize(surfaceFormGenerator.getSurfaceForms(endpoint, example.getLeft().getURI()));
+			Set<String> objects = normalize(surfaceFormGenerator.getSurfaceForms(endpoint, example.getRight().getURI()));
+			int found = 0;
+			for (String sub : subjects) {
+				for (String obj : objects) {
+					if (found >= maxPagesPerExample) {
+						break;
+					}
+					// only the HTML of the selected pages is loaded
+					for (String url : index.searchHTMLForURLs(sub + " AND " + obj)) {
+						if (found >= maxPagesPerExample) {
+							break;
+						}
+						if (url.startsWith(domain.toString()) && urls.add(url)) {
+							List<Pair<String, String>> documents = index.searchURL(url);
+							if (!documents.isEmpty()) {
+								pages.add(new ExamplePage(url, documents.get(0).getRight(), subjects, objects));
+								found++;
+							}
+						}
+					}
+				}
+			}
+		}
+		return pages;
+	}
+
+	private Set<String> normalize(Set<String> surfaceForms) {
+		Set<String> normalized = new HashSet<String>();
+		for (String surfaceForm : surfaceForms) {
+			normalized.add(TextNodeIndex.normalize(surfaceForm));
+		}
+		return normalized;
+	}
+
+	/**
+	 * @param heldOutFraction
+	 *            fraction of the example pages used to estimate the precision
+	 */
+	public void setHeldOutFraction(double heldOutFraction) {
+		this.heldOutFraction = heldOutFraction;
+	}
+
+	/**
+	 * @param maxPagesPerExample
+	 *            maximum number of pages used per positive example
+	 */
+	public void setMaxPagesPerExample(int maxPagesPerExample) {
+		this.maxPagesPerExample = maxPagesPerExample;
+	}
+
+	/**
+	 * @param seed
+	 *            seed of the split into training and held-out pages
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+}
@@ -0,0 +1,318 @@
+package org.aksw.rex.xpath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable representation of an absolute XPath expression as array of
+ * location steps. Each step consists of an interned tag id, a position (0 for
+ * none) and a flag whether the step is preceded by // instead of /.
+ *
+ * @author Lorenz Buehmann
+ *
+ */
+public final class XPathSteps {
+
+	private static final ConcurrentHashMap<String, Integer> TAG_IDS = new ConcurrentHashMap<String, Integer>();
+	private static final List<String> TAGS = new ArrayList<String>();
+	public static final String STAR = "*";
+	public static final int STAR_ID = tagId(STAR);
+
+	// alignment scores
+	private static final int SAME_TAG = 2;
+	private static final int SAME_POSITION = 1;
+	private static final int STAR_TAG = 1;
+	private static final int DIFFERENT_TAG = 0;
+	private static final int GAP = -1;
+
+	private final int[] tags;
+	private final int[] positions;
+	private final boolean[] descendant;
+
+	private XPathSteps(int[] tags, int[] positions, boolean[] descendant) {
+		this.tags = tags;
+		this.positions = positions;
+		this.descendant = descendant;
+	}
+
+	/**
+	 *
+	 * @param tag
+	 * @return the interned id of the tag
+	 */
+	public static int tagId(String tag) {
+		Integer id = TAG_IDS.get(tag);
+		if (id == null) {
+			synchronized (TAGS) {
+				id = TAG_IDS.get(tag);
+				if (id == null) {
+					id = TAGS.size();
+					TAGS.add(tag);
+					TAG_IDS.put(tag, id);
+				}
+			}
+		}
+		return id;
+	}
+
+	private static String tag(int id) {
+		synchronized (TAGS) {
+			return TAGS.get(id);
+		}
+	}
+
+	/**
+	 * parses expressions of the form /tag[1]/tag//*
+	 *
+	 * @param xPath
+	 * @return the steps of the expression
+	 * @throws IllegalArgumentException
+	 *             if the expression has other predicates than positions
+	 */
+	public static XPathSteps parse(String xPath) {
+		int n = 0;
+		for (int i = 0; i < xPath.length(); i++) {
+			if (xPath.charAt(i) == '/' && (i + 1 >= xPath.length() || xPath.charAt(i + 1) != '/')) {
+				n++;
+			}
+		}
+		int[] tags = new int[n];
+		int[] positions = new int[n];
+		boolean[] descendant = new boolean[n];
+		int step = 0;
+		int i = 0;
+		while (i < xPath.length()) {
+			if (xPath.charAt(i) != '/') {
+				throw new IllegalArgumentException("Can not handle XPath expression " + xPath);
+			}
+			i++;
+			if (i < xPath.length() && xPath.charAt(i) == '/') {
+				descendant[step] = true;
+				i++;
+			}
+			int start = i;
+			while (i < xPath.length() && xPath.charAt(i) != '/' && xPath.charAt(i) != '[') {
+				i++;
+			}
+			String tag = xPath.substring(start, i).trim();
+			if (tag.isEmpty()) {
+				throw new IllegalArgumentException("Can not handle XPath expression " + xPath);
+			}
+			tags[step] = tagId(tag);
+			if (i < xPath.length() && xPath.charAt(i) == '[') {
+				int end = xPath.indexOf(']', i);
+				if (end < 0) {
+					throw new IllegalArgumentException("Can not handle XPath expression " + xPath);
+				}
+				try {
+					positions[step] = Integer.parseInt(xPath.substring(i + 1, end).trim());
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Can not handle XPath expression " + xPath);
+				}
+				i = end + 1;
+			}
+			step++;
+		}
+		return new XPathSteps(tags, positions, descendant);
+	}
+
+	/**
+	 *
+	 * @return number of steps
+	 */
+	public int length() {
+		return tags.length;
+	}
+
+	/**
+	 * Checks whether two expressions of possibly different length describe
+	 * the same structure, i.e. all steps of the shorter expression can be
+	 * aligned to steps of the longer expression with the same tag, the last
+	 * steps with each other. Positions are ignored.
+	 *
+	 * @param other
+	 * @return true if the tags of the shorter expression are a subsequence of
+	 *         the tags of the longer one ending with the same tag
+	 */
+	public boolean alignsWith(XPathSteps other) {
+		int[] shorter = tags.length <= other.tags.length ? tags : other.tags;
+		int[] longer = shorter == tags ? other.tags : tags;
+		int n = shorter.length;
+		int m = longer.length;
+		if (n == 0 || shorter[n - 1] != longer[m - 1]) {
+			return false;
+		}
+		int j = 0;
+		for (int i = 0; i < n - 1; i++) {
+			while (j < m - 1 && longer[j] != shorter[i]) {
+				j++;
+			}
+			if (j == m - 1) {
+				return false;
+			}
+			j++;
+		}
+		return true;
+	}
+
+	/**
+	 * Least general generalization of two expressions. Expressions of the same
+	 * length are generalized step by step: equal steps are kept, steps with
+	 * the same tag lose their position and all other steps become *.
+	 * Expressions of different length are aligned such that the number of
+	 * equal tags (and positions) is maximal, steps not aligned to a step of the other
+	 * expression are replaced by //. The last steps are always aligned.
+	 *
+	 * @param other
+	 * @return the generalized expression matching both expressions
+	 * @throws IllegalArgumentException
+	 *             if one of the expressions is empty
+	 */
+	public XPathSteps generalize(XPathSteps other) {
+		if (equals(other)) {
+			return this;
+		}
+		int n = tags.length;
+		int m = other.tags.length;
+		if (n == 0 || m == 0) {
+			throw new IllegalArgumentException("Can not generalize an empty XPath expression.");
+		}
+		if (n == m) {
+			int[] t = new int[n];
+			int[] p = new int[n];
+			boolean[] d = new boolean[n];
+			for (int i = 0; i < n; i++) {
+				generalizeStep(i, other, i, t, p, i);
+				d[i] = descendant[i] || other.descendant[i];
+			}
+			return new XPathSteps(t, p, d);
+		}
+		return align(other);
+	}
+
+	private XPathSteps align(XPathSteps other) {
+		// align all steps but the last ones, which are aligned with each other
+		int n = tags.length - 1;
+		int m = other.tags.length - 1;
+		int[][] score = new int[n + 1][m + 1];
+		for (int i = 1; i <= n; i++) {
+			score[i][0] = i * GAP;
+		}
+		for (int j = 1; j <= m; j++) {
+			score[0][j] = j * GAP;
+		}
+		for (int i = 1; i <= n; i++) {
+			for (int j = 1; j <= m; j++) {
+				int match = score[i - 1][j - 1] + stepScore(i - 1, other, j - 1);
+				score[i][j] = Math.max(match, Math.max(score[i - 1][j], score[i][j - 1]) + GAP);
+			}
+		}
+
+		// trace back, collecting the aligned pairs from the end
+		int[] aligned1 = new int[Math.min(n, m) + 1];
+		int[] aligned2 = new int[Math.min(n, m) + 1];
+		boolean[] gapBefore = new boolean[Math.min(n, m) + 2];
+		int k = 0;
+		aligned1[k] = n;
+		aligned2[k] = m;
+		k++;
+		int i = n;
+		int j = m;
+		while (i > 0 || j > 0) {
+			if (i > 0 && j > 0 && score[i][j] == score[i - 1][j - 1] + stepScore(i - 1, other, j - 1)) {
+				i--;
+				j--;
+				aligned1[k] = i;
+				aligned2[k] = j;
+				k++;
+			} else {
+				if (i > 0 && (j == 0 || score[i][j] == score[i - 1][j] + GAP)) {
+					i--;
+				} else {
+					j--;
+				}
+				// the step aligned last (i.e. the next one in path order) is
+				// preceded by a gap
+				gapBefore[k - 1] = true;
+			}
+		}
+
+		int[] t = new int[k];
+		int[] p = new int[k];
+		boolean[] d = new boolean[k];
+		for (int s = 0; s < k; s++) {
+			int step = k - 1 - s;
+			int i1 = aligned1[s];
+			int i2 = aligned2[s];
+			generalizeStep(i1, other, i2, t, p, step);
+			d[step] = gapBefore[s] || descendant[i1] || other.descendant[i2];
+		}
+		return new XPathSteps(t, p, d);
+	}
+
+	private void generalizeStep(int i, XPathSteps other, int j, int[] t, int[] p, int step) {
+		if (tags[i] == other.tags[j]) {
+			t[step] = tags[i];
+			// different positions are dropped
+			p[step] = positions[i] == other.positions[j] ? positions[i] : 0;
+		} else {
+			t[step] = STAR_ID;
+			p[step] = 0;
+		}
+	}
+
+	private int stepScore(int i, XPathSteps other, int j) {
+		if (tags[i] == other.tags[j]) {
+			return positions[i] == other.positions[j] ? SAME_TAG + SAME_POSITION : SAME_TAG;
+		} else if (tags[i] == STAR_ID || other.tags[j] == STAR_ID) {
+			return STAR_TAG;
+		}
+		return DIFFERENT_TAG;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder xPath = new StringBuilder();
+		for (int i = 0; i < tags.length; i++) {
+			xPath.append(descendant[i] ? "//" : "/").append(tag(tags[i]));
+			if (positions[i] > 0) {
+				xPath.append('[').append(positions[i]).append(']');
+			}
+		}
+		return xPath.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Arrays.hashCode(tags) + Arrays.hashCode(positions)) + Arrays.hashCode(descendant);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof XPathSteps)) {
+			return false;
+		}
+		XPathSteps other = (XPathSteps) obj;
+		return Arrays.equals(tags, other.tags) && Arrays.equals(positions, other.positions) && Arrays.equals(descendant, other.descendant);
+	}
+}
@@ -1,5 +1,6 @@
 package org.aksw.rex.xpath.alfred;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
@@ -14,6 +15,7 @@ import java.util.Set;
 import model.Page;
 
 import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.CrawlIndexCursor;
 import org.aksw.rex.domainidentifier.ManualDomainIdentifier;
 import org.aksw.rex.examplegenerator.ExampleGenerator;
 import org.aksw.rex.experiments.ExampleGeneratorFactory;
@@ -51,7 +53,21 @@ public class ALFREDPageRetrieval {
 	 * @return
 	 */
 	public List<Page> getPages(int number) {
-		List<Page> pages = new LinkedList<Page>(this.index.getPages(number));
+		List<Page> pages = new LinkedList<Page>();
+		CrawlIndexCursor cursor = null;
+		try {
+			cursor = this.index.cursor();
+			Iterator<Page> iter = cursor.asPages();
+			while (pages.size() < number && iter.hasNext()) {
+				pages.add(iter.next());
+			}
+		} catch (IOException e) {
+			log.error("Could not read pages from index " + this.index.getName());
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
 		log.debug("Retrieving: " + pages.size() + " of " + number);
 		return pages;
 	}
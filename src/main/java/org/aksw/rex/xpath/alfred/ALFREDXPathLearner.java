@@ -1,9 +1,10 @@
 package org.aksw.rex.xpath.alfred;
 
+import java.io.IOException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +17,7 @@ import model.Rule;
 import model.RuleSet;
 
 import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.CrawlIndexCursor;
 import org.aksw.rex.results.ExtractionResult;
 import org.aksw.rex.results.ExtractionResultImpl;
 import org.aksw.rex.util.Pair;
@@ -144,23 +146,30 @@ public class ALFREDXPathLearner implements XPathLearner {
 	@Override
 	public Set<ExtractionResult> getExtractionResults(List<Pair<XPathRule, XPathRule>> expressions, URL domain) {
 		Set<ExtractionResult> ex = new HashSet<ExtractionResult>();
-		
-		for (int i = 0; i < 100; i++) {
-			try {
-				ArrayList<Pair<String, String>> doc = index.getDocument(i);
-				Page d = new Page(doc.get(0).getRight(), null, doc.get(0).getLeft());
-				if (d.getTitle().startsWith(domain.toExternalForm())) {
+
+		CrawlIndexCursor cursor = null;
+		try {
+			cursor = index.cursor(domain.toExternalForm(), CrawlIndex.DEFAULT_BATCH_SIZE);
+			Iterator<Page> pages = cursor.asPages();
+			for (int i = 0; i < 100 && pages.hasNext(); i++) {
+				try {
+					Page d = pages.next();
 					for (Pair<XPathRule, XPathRule> p : expressions) {
 						XPathRule left = p.getLeft();
 						XPathRule right = p.getRight();
 						ExtractedValue s = left.applyOn(d);
 						ExtractedValue o = right.applyOn(d);
-						ex.add(new ExtractionResultImpl(s.getTextContent(), o.getTextContent(),d.getTitle()));
+						ex.add(new ExtractionResultImpl(s.getTextContent(), o.getTextContent(), d.getTitle()));
 					}
-				} else 
-					log.debug("Page removed:" + d.getTitle());
-			} catch (Exception e) {
-				log.error(e.getLocalizedMessage());
+				} catch (Exception e) {
+					log.error(e.getLocalizedMessage());
+				}
+			}
+		} catch (IOException e) {
+			log.error(e.getLocalizedMessage());
+		} finally {
+			if (cursor != null) {
+				cursor.close();
 			}
 		}
 		return ex;
@@ -169,6 +178,7 @@ public class ALFREDXPathLearner implements XPathLearner {
 	/**
 	 * @return index used to extract Xpaths
 	 */
+	@Override
 	public CrawlIndex getIndex() {
 		return index;
 	}
@@ -0,0 +1,90 @@
+package org.aksw.rex.test.consistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.aksw.rex.consistency.ClassDictionary;
+import org.junit.Test;
+
+public class ClassDictionaryTest {
+	private static final String ONTOLOGY = "http://dbpedia.org/ontology/";
+
+	@Test
+	public void testDenseIds() {
+		ClassDictionary dictionary = new ClassDictionary();
+		assertEquals(0, dictionary.getId(ONTOLOGY + "Person"));
+		assertEquals(1, dictionary.getId(ONTOLOGY + "Film"));
+		assertEquals(0, dictionary.getId(ONTOLOGY + "Person"));
+		assertEquals(2, dictionary.size());
+		assertEquals(ONTOLOGY + "Film", dictionary.getURI(1));
+	}
+
+	@Test
+	public void testBitSets() {
+		ClassDictionary dictionary = new ClassDictionary();
+		dictionary.getId(ONTOLOGY + "Place");
+		BitSet bits = dictionary.toBitSet(Arrays.asList(ONTOLOGY + "Person", ONTOLOGY + "Film", ONTOLOGY + "Person"));
+		assertEquals(2, bits.cardinality());
+		assertTrue(!bits.get(dictionary.getId(ONTOLOGY + "Place")));
+		assertEquals(Arrays.asList(ONTOLOGY + "Person", ONTOLOGY + "Film"), dictionary.toURIs(bits));
+	}
+
+	@Test
+	public void testSortedIds() {
+		ClassDictionary dictionary = new ClassDictionary();
+		for (int i = 0; i < 100000; i++) {
+			dictionary.getId(ONTOLOGY + "Class" + i);
+		}
+		int[] ids = dictionary.toIds(Arrays.asList(ONTOLOGY + "Person", ONTOLOGY + "Class5", ONTOLOGY + "Person"));
+		assertEquals("A late class does not make the set larger.", 2, ids.length);
+		assertEquals(5, ids[0]);
+		assertEquals(100000, ids[1]);
+		assertEquals(Arrays.asList(ONTOLOGY + "Class5", ONTOLOGY + "Person"), dictionary.toURIs(ids));
+		assertEquals(0, dictionary.toIds(new HashSet<String>()).length);
+	}
+
+	@Test
+	public void testConcurrentIds() throws Exception {
+		final ClassDictionary dictionary = new ClassDictionary();
+		final CountDownLatch start = new CountDownLatch(1);
+		final int[][] ids = new int[4][100];
+		Thread[] threads = new Thread[ids.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int[] threadIds = ids[t];
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < threadIds.length; i++) {
+						threadIds[i] = dictionary.getId(ONTOLOGY + "Class" + i);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(100, dictionary.size());
+		Set<Integer> distinct = new HashSet<Integer>();
+		for (int i = 0; i < 100; i++) {
+			for (int t = 1; t < ids.length; t++) {
+				assertEquals("All threads get the same id.", ids[0][i], ids[t][i]);
+			}
+			assertEquals(ONTOLOGY + "Class" + i, dictionary.getURI(ids[0][i]));
+			distinct.add(ids[0][i]);
+		}
+		assertEquals(100, distinct.size());
+	}
+}
@@ -0,0 +1,241 @@
+package org.aksw.rex.test.consistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.aksw.rex.consistency.ConsistencyCheckerImpl;
+import org.aksw.rex.consistency.ConsistencyVerdict;
+import org.aksw.rex.consistency.ConsistencyVerdict.Rule;
+import org.aksw.rex.consistency.DisjointnessMatrix;
+import org.aksw.rex.util.KnowledgeBaseBackend;
+import org.dllearner.core.owl.Axiom;
+import org.dllearner.core.owl.DisjointClassesAxiom;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.ObjectProperty;
+import org.dllearner.core.owl.ObjectPropertyDomainAxiom;
+import org.dllearner.core.owl.ObjectPropertyRangeAxiom;
+import org.dllearner.kb.sparql.SparqlEndpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+/**
+ * Checks triples against a small local knowledge base, in which ex:director
+ * has the domain ex:Film and the range ex:Person and is asymmetric.
+ */
+public class ConsistencyCheckerTest {
+	private static final String ONTOLOGY = "http://example.org/ontology/";
+	private static final String RESOURCE = "http://example.org/resource/";
+	private static final String KB = "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+			+ "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n"
+			+ "@prefix ex: <" + ONTOLOGY + "> .\n"
+			+ "@prefix res: <" + RESOURCE + "> .\n"
+			+ "ex:director a owl:ObjectProperty, owl:AsymmetricProperty ; rdfs:domain ex:Film ; rdfs:range ex:Person .\n"
+			+ "res:Top_Gun a ex:Film . res:Alien a ex:Film .\n"
+			+ "res:Tony_Scott a ex:Person . res:Ridley_Scott a ex:Person .\n"
+			+ "res:London a ex:City .\n"
+			+ "res:Ridley_Scott ex:director res:Alien .\n";
+
+	private File cacheDirectory;
+	private ConsistencyCheckerImpl checker;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(KnowledgeBaseBackend.BACKEND_PROPERTY, "memory");
+		Model model = ModelFactory.createDefaultModel();
+		model.read(new StringReader(KB), null, "TURTLE");
+		KnowledgeBaseBackend.setDataset(DatasetFactory.create(model));
+
+		cacheDirectory = Files.createTempDir();
+		checker = new ConsistencyCheckerImpl(new SparqlEndpoint(new URL("http://localhost/sparql-consistency-test")), ONTOLOGY, cacheDirectory.getPath());
+		checker.setDisjointnessMatrix(createMatrix(0.9f));
+	}
+
+	/**
+	 * @param personCity
+	 *            disjointness score of ex:Person and ex:City
+	 * @return scores of all pairs of the classes of the knowledge base
+	 */
+	private static DisjointnessMatrix createMatrix(float personCity) {
+		String film = ONTOLOGY + "Film";
+		String person = ONTOLOGY + "Person";
+		String city = ONTOLOGY + "City";
+		DisjointnessMatrix matrix = new DisjointnessMatrix("test", Arrays.asList(film, person, city));
+		matrix.setScore(film, film, 0f);
+		matrix.setScore(person, person, 0f);
+		matrix.setScore(city, city, 0f);
+		matrix.setScore(film, person, 0.9f);
+		matrix.setScore(film, city, 0.9f);
+		matrix.setScore(person, city, personCity);
+		return matrix;
+	}
+
+	@After
+	public void tearDown() {
+		KnowledgeBaseBackend.setDataset(null);
+		System.clearProperty(KnowledgeBaseBackend.BACKEND_PROPERTY);
+		File[] files = cacheDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		cacheDirectory.delete();
+	}
+
+	private static Triple director(String film, String director) {
+		return Triple.create(Node.createURI(RESOURCE + film), Node.createURI(ONTOLOGY + "director"), Node.createURI(RESOURCE + director));
+	}
+
+	private Set<Triple> triples() {
+		Set<Triple> triples = new LinkedHashSet<Triple>();
+		triples.add(director("Top_Gun", "Tony_Scott"));
+		triples.add(director("Top_Gun", "London"));
+		triples.add(director("Alien", "Ridley_Scott"));
+		return triples;
+	}
+
+	private void assertVerdicts(Map<Triple, ConsistencyVerdict> verdicts) {
+		assertEquals(3, verdicts.size());
+		assertTrue(verdicts.get(director("Top_Gun", "Tony_Scott")).isConsistent());
+		assertEquals(Rule.DISJOINTNESS, verdicts.get(director("Top_Gun", "London")).getViolatedRule());
+		assertEquals(Rule.ASYMMETRY, verdicts.get(director("Alien", "Ridley_Scott")).getViolatedRule());
+	}
+
+	@Test
+	public void testBatchModeEqualsSingleMode() {
+		checker.setBatchMode(true);
+		assertVerdicts(checker.getVerdicts(triples()));
+		checker.setBatchMode(false);
+		assertVerdicts(checker.getVerdicts(triples()));
+	}
+
+	@Test
+	public void testConcurrentChunks() {
+		checker.setBatchSize(1);
+		checker.setNumberOfThreads(3);
+		assertVerdicts(checker.getVerdicts(triples()));
+		assertEquals(1, checker.getConsistentTriples(triples()).size());
+	}
+
+	@Test
+	public void testChangeMaxConcurrentQueries() {
+		checker.setBatchSize(1);
+		checker.setNumberOfThreads(3);
+		checker.setMaxConcurrentQueries(1);
+		assertVerdicts(checker.getVerdicts(triples()));
+		checker.setMaxConcurrentQueries(8);
+		assertVerdicts(checker.getVerdicts(triples()));
+	}
+
+	@Test
+	public void testInterruptKeepsUncheckedTriples() {
+		checker.setBatchSize(1);
+		checker.setNumberOfThreads(3);
+		Thread.currentThread().interrupt();
+		Map<Triple, ConsistencyVerdict> verdicts;
+		try {
+			verdicts = checker.getVerdicts(triples());
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+		// chunks finished before the interrupt was noticed are checked, all others are kept unchecked
+		assertEquals(triples(), verdicts.keySet());
+		assertNull(verdicts.get(director("Top_Gun", "Tony_Scott")).getViolatedRule());
+		ConsistencyVerdict verdict = verdicts.get(director("Top_Gun", "London"));
+		assertTrue(verdict.isChecked() ? verdict.getViolatedRule() == Rule.DISJOINTNESS : verdict.getViolatedRule() == null);
+	}
+
+	@Test
+	public void testTriplesOfFailedQueriesAreKept() {
+		// the IRI can not be parsed, i.e. all queries of its chunk fail
+		Triple invalid = director("Top Gun", "London");
+		Set<Triple> triples = triples();
+		triples.add(invalid);
+		checker.setBatchSize(3);
+		checker.setNumberOfThreads(2);
+		Map<Triple, ConsistencyVerdict> verdicts = checker.getVerdicts(triples);
+		assertEquals(4, verdicts.size());
+		assertFalse(verdicts.get(invalid).isChecked());
+		assertFalse(verdicts.get(invalid).isConsistent());
+		assertEquals(Rule.DISJOINTNESS, verdicts.get(director("Top_Gun", "London")).getViolatedRule());
+
+		checker.setNumberOfThreads(1);
+		assertEquals(2, checker.getConsistentTriples(triples).size());
+	}
+
+	@Test
+	public void testFailedTripleDoesNotAffectItsChunk() {
+		Triple invalid = director("Top Gun", "London");
+		for (boolean batchMode : new boolean[] { true, false }) {
+			Set<Triple> triples = new LinkedHashSet<Triple>();
+			triples.add(director("Top_Gun", "London"));
+			triples.add(invalid);
+			triples.addAll(triples());
+			checker.setBatchMode(batchMode);
+			Map<Triple, ConsistencyVerdict> verdicts = checker.getVerdicts(triples);
+			assertEquals(4, verdicts.size());
+			assertFalse(verdicts.get(invalid).isChecked());
+			verdicts.remove(invalid);
+			assertVerdicts(verdicts);
+		}
+	}
+	
+	@Test
+	public void testConsistentTriplesWithAxioms() {
+		ObjectProperty property = new ObjectProperty(ONTOLOGY + "director");
+		Set<Axiom> axioms = new HashSet<Axiom>();
+		axioms.add(new ObjectPropertyDomainAxiom(property, new NamedClass(ONTOLOGY + "Film")));
+		axioms.add(new ObjectPropertyRangeAxiom(property, new NamedClass(ONTOLOGY + "Person")));
+		axioms.add(new DisjointClassesAxiom(new NamedClass(ONTOLOGY + "City"), new NamedClass(ONTOLOGY + "Person")));
+		Set<Triple> triples = triples();
+		Set<Triple> consistentTriples = checker.getConsistentTriples(triples, axioms);
+		assertEquals("The given set is not modified.", triples(), triples);
+		assertEquals(2, consistentTriples.size());
+		assertFalse(consistentTriples.contains(director("Top_Gun", "London")));
+	}
+	
+	@Test
+	public void testMasksFollowThresholdAndMatrix() {
+		// the types of London are only disjoint with a score of 0.9
+		checker.setAccuracyThreshold(0.95);
+		assertNull(checker.getVerdicts(triples()).get(director("Top_Gun", "London")).getViolatedRule());
+		checker.setAccuracyThreshold(0.7);
+		assertEquals(Rule.DISJOINTNESS, checker.getVerdicts(triples()).get(director("Top_Gun", "London")).getViolatedRule());
+
+		// a new matrix replaces the masks
+		checker.setDisjointnessMatrix(createMatrix(0.1f));
+		assertNull(checker.getVerdicts(triples()).get(director("Top_Gun", "London")).getViolatedRule());
+	}
+
+	@Test
+	public void testProfilesAreStoredPerKnowledgeBase() throws Exception {
+		checker.getVerdicts(triples());
+		File[] files = cacheDirectory.listFiles();
+		assertEquals(1, files.length);
+		assertTrue(files[0].getName().startsWith("property-profiles-"));
+		String profiles = new String(java.nio.file.Files.readAllBytes(files[0].toPath()), "UTF-8");
+		assertTrue(profiles.contains(ONTOLOGY + "director"));
+		assertFalse("The functionality score is only learned for functional properties.", profiles.contains("functionalityScore"));
+		assertFalse("The domain is only learned if none is declared.", profiles.contains("domainScores"));
+		assertFalse("The range is only learned if none is declared.", profiles.contains("rangeScores"));
+	}
+}
@@ -0,0 +1,53 @@
+package org.aksw.rex.test.consistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+
+import org.aksw.rex.consistency.DisjointnessMatrix;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+public class DisjointnessMatrixTest {
+	private static final String KNOWLEDGE_BASE = "http://dbpedia.org/sparql [http://dbpedia.org]";
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		DisjointnessMatrix matrix = new DisjointnessMatrix(KNOWLEDGE_BASE, Arrays.asList("http://dbpedia.org/ontology/Person", "http://dbpedia.org/ontology/Film", "http://dbpedia.org/ontology/Caf\u00e9"));
+		matrix.setScore("http://dbpedia.org/ontology/Person", "http://dbpedia.org/ontology/Film", 0.95f);
+		matrix.setScore("http://dbpedia.org/ontology/Film", "http://dbpedia.org/ontology/Caf\u00e9", 0.2f);
+
+		File file = new File(Files.createTempDir(), "disjointness.matrix");
+		matrix.save(file);
+		DisjointnessMatrix loaded = DisjointnessMatrix.load(file, KNOWLEDGE_BASE);
+
+		assertEquals(matrix.getClasses(), loaded.getClasses());
+		assertEquals(KNOWLEDGE_BASE, loaded.getKnowledgeBase());
+		assertEquals(0.95f, loaded.getScore("http://dbpedia.org/ontology/Film", "http://dbpedia.org/ontology/Person"), 0);
+		assertEquals(0.2f, loaded.getScore(loaded.indexOf("http://dbpedia.org/ontology/Caf\u00e9"), loaded.indexOf("http://dbpedia.org/ontology/Film")), 0);
+		assertTrue(Float.isNaN(loaded.getScore("http://dbpedia.org/ontology/Person", "http://dbpedia.org/ontology/Person")));
+		assertTrue(Float.isNaN(loaded.getScore("http://dbpedia.org/ontology/Person", "http://dbpedia.org/ontology/Place")));
+		assertEquals(-1, loaded.indexOf("http://dbpedia.org/ontology/Place"));
+	}
+
+	@Test(expected = ReadOnlyBufferException.class)
+	public void testLoadedMatrixIsReadOnly() throws Exception {
+		DisjointnessMatrix matrix = new DisjointnessMatrix(KNOWLEDGE_BASE, Arrays.asList("http://dbpedia.org/ontology/Person", "http://dbpedia.org/ontology/Film"));
+		File file = new File(Files.createTempDir(), "disjointness.matrix");
+		matrix.save(file);
+		DisjointnessMatrix.load(file, KNOWLEDGE_BASE).setScore("http://dbpedia.org/ontology/Person", "http://dbpedia.org/ontology/Film", 1f);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMatrixOfAnotherKnowledgeBaseIsNotLoaded() throws Exception {
+		DisjointnessMatrix matrix = new DisjointnessMatrix(KNOWLEDGE_BASE, Arrays.asList("http://dbpedia.org/ontology/Person", "http://dbpedia.org/ontology/Film"));
+		File file = new File(Files.createTempDir(), "disjointness.matrix");
+		matrix.save(file);
+		DisjointnessMatrix.load(file, "http://live.dbpedia.org/sparql [http://dbpedia.org]");
+	}
+}
@@ -1,16 +1,23 @@
 package org.aksw.rex.test.crawl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 
 import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.CrawlIndexBuilder;
 import org.aksw.rex.util.Pair;
+import org.jsoup.Jsoup;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.io.Files;
+
 public class CrawlerTest {
 	private org.slf4j.Logger log = LoggerFactory.getLogger(CrawlerTest.class);
 	private static CrawlIndex index;
@@ -51,4 +58,45 @@ public class CrawlerTest {
 			log.debug(url +" "+ html.length());
 		}
 	}
+
+	@Test
+	public void testNearRealTimeSearch() throws Exception {
+		File dir = Files.createTempDir();
+		CrawlIndex nrtIndex = new CrawlIndex(dir.getAbsolutePath(), 0);
+		try {
+			String url = "http://www.imdb.com/title/tt0181689/";
+			nrtIndex.addDocumentToIndex(url, "<html><body><p>Minority Report</p></body></html>");
+			nrtIndex.refresh();
+			ArrayList<Pair<String, String>> data = nrtIndex.searchURL(url);
+			assertEquals("Added document is visible without reopening the index.", 1, data.size());
+			assertEquals(1, nrtIndex.size());
+		} finally {
+			nrtIndex.close();
+		}
+	}
+
+	@Test
+	public void testBuildIndexFromWARC() throws Exception {
+		File dir = Files.createTempDir();
+		String body = "<html><head><title>Minority Report</title></head><body><p>Tom Cruise</p></body></html>";
+		String response = "HTTP/1.1 200 OK\r\nContent-Type: text/html; charset=UTF-8\r\n\r\n" + body;
+		String record = "WARC/1.0\r\nWARC-Type: response\r\nWARC-Target-URI: http://www.imdb.com/title/tt0181689/\r\nContent-Length: " + response.getBytes("UTF-8").length + "\r\n\r\n" + response + "\r\n\r\n";
+		File warc = new File(dir, "dump.warc");
+		Files.write(record + record.replace("tt0181689", "tt0181690"), warc, Charset.forName("UTF-8"));
+
+		CrawlIndex bulkIndex = new CrawlIndex(new File(dir, "index").getAbsolutePath(), 0);
+		try {
+			CrawlIndexBuilder builder = new CrawlIndexBuilder(bulkIndex, 2, 10, 0);
+			builder.start();
+			builder.ingest(warc);
+			builder.finish();
+			bulkIndex.refresh();
+			assertEquals(2, builder.getIndexedPages());
+			ArrayList<Pair<String, String>> data = bulkIndex.searchHTML("Cruise");
+			assertEquals(2, data.size());
+			assertEquals("Tom Cruise", Jsoup.parse(data.get(0).getRight()).select("p").text());
+		} finally {
+			bulkIndex.close();
+		}
+	}
 }
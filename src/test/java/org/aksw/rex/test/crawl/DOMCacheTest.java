@@ -0,0 +1,43 @@
+package org.aksw.rex.test.crawl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.aksw.rex.crawler.DOMCache;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+public class DOMCacheTest {
+	private static final String HTML = "<html><body><p>Tom Cruise</p></body></html>";
+
+	@Test
+	public void testDocumentsAreThreadConfined() throws Exception {
+		final DOMCache cache = new DOMCache(1000);
+		Document document = cache.getDocument("http://example.org/", HTML);
+		assertSame(document, cache.getDocument("http://example.org/", HTML));
+
+		final AtomicReference<Document> other = new AtomicReference<Document>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				other.set(cache.getDocument("http://example.org/", HTML));
+			}
+		});
+		thread.start();
+		thread.join();
+		assertNotSame(document, other.get());
+		assertEquals(1, cache.stats().hitCount());
+		assertEquals(2, cache.stats().missCount());
+	}
+
+	@Test
+	public void testClear() {
+		DOMCache cache = new DOMCache(1000);
+		Document document = cache.getDocument("http://example.org/", HTML);
+		cache.clear();
+		assertNotSame(document, cache.getDocument("http://example.org/", HTML));
+	}
+}
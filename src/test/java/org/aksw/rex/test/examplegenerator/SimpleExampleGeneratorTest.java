@@ -0,0 +1,151 @@
+package org.aksw.rex.test.examplegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.aksw.rex.examplegenerator.PositiveExampleStream;
+import org.aksw.rex.examplegenerator.SimpleExampleGenerator;
+import org.aksw.rex.examplegenerator.SimpleExampleGenerator.SamplingMode;
+import org.aksw.rex.util.KnowledgeBaseBackend;
+import org.aksw.rex.util.Pair;
+import org.dllearner.kb.sparql.SparqlEndpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * Retrieves the examples of ex:director from a local knowledge base with 7
+ * movies, one of them has a literal as director. The domain of ex:director is
+ * ex:Film.
+ */
+public class SimpleExampleGeneratorTest {
+	private static final String ONTOLOGY = "http://example.org/ontology/";
+	private static final String RESOURCE = "http://example.org/resource/";
+	private static final String[][] MOVIES = { { "Top_Gun", "Tony_Scott" }, { "Crimson_Tide", "Tony_Scott" }, { "Alien", "Ridley_Scott" },
+			{ "Gladiator", "Ridley_Scott" }, { "Jaws", "Steven_Spielberg" }, { "Heat", "Michael_Mann" } };
+
+	private Model model;
+	private Property director;
+	private SimpleExampleGenerator generator;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(KnowledgeBaseBackend.BACKEND_PROPERTY, "memory");
+		model = ModelFactory.createDefaultModel();
+		director = model.createProperty(ONTOLOGY + "director");
+		for (String[] movie : MOVIES) {
+			model.add(model.createResource(RESOURCE + movie[0]), director, model.createResource(RESOURCE + movie[1]));
+		}
+		model.add(model.createResource(RESOURCE + "Duel"), director, "Steven Spielberg");
+		Resource film = model.createResource(ONTOLOGY + "Film");
+		model.add(director, RDFS.domain, film);
+		for (String[] movie : MOVIES) {
+			model.add(model.createResource(RESOURCE + movie[0]), RDF.type, film);
+		}
+		KnowledgeBaseBackend.setDataset(DatasetFactory.create(model));
+
+		generator = createGenerator();
+	}
+
+	private SimpleExampleGenerator createGenerator() throws Exception {
+		SimpleExampleGenerator generator = new SimpleExampleGenerator();
+		generator.setEndpoint(new SparqlEndpoint(new URL("http://localhost/sparql-example-generator-test")));
+		generator.setPredicate(director);
+		generator.setPageSize(2);
+		return generator;
+	}
+
+	@After
+	public void tearDown() {
+		KnowledgeBaseBackend.setDataset(null);
+		System.clearProperty(KnowledgeBaseBackend.BACKEND_PROPERTY);
+	}
+
+	private Set<Pair<Resource, Resource>> allExamples() {
+		Set<Pair<Resource, Resource>> examples = new HashSet<Pair<Resource, Resource>>();
+		for (String[] movie : MOVIES) {
+			examples.add(new Pair<Resource, Resource>(model.createResource(RESOURCE + movie[0]), model.createResource(RESOURCE + movie[1])));
+		}
+		return examples;
+	}
+
+	@Test
+	public void testStreamResumesAfterCheckpoint() {
+		assertStreamResumesAfterCheckpoint();
+		generator.setPageSize(PositiveExampleStream.SINGLE_QUERY);
+		assertStreamResumesAfterCheckpoint();
+	}
+
+	private void assertStreamResumesAfterCheckpoint() {
+		List<Pair<Resource, Resource>> examples = new ArrayList<Pair<Resource, Resource>>();
+		PositiveExampleStream stream = generator.streamPositiveExamples(null);
+		for (int i = 0; i < 3; i++) {
+			examples.add(stream.next());
+		}
+		Pair<String, String> checkpoint = stream.getCheckpoint();
+		stream.close();
+		assertEquals(examples.get(2).getLeft().getURI(), checkpoint.getLeft());
+
+		stream = generator.streamPositiveExamples(checkpoint);
+		while (stream.hasNext()) {
+			examples.add(stream.next());
+		}
+		assertEquals("No example is returned twice.", MOVIES.length, examples.size());
+		assertEquals(allExamples(), new HashSet<Pair<Resource, Resource>>(examples));
+	}
+
+	@Test
+	public void testRankedPages() {
+		List<Pair<Resource, Resource>> examples = generator.getListOfPositiveExamples();
+		assertEquals(MOVIES.length, examples.size());
+		assertEquals(allExamples(), new HashSet<Pair<Resource, Resource>>(examples));
+		// without IRI_RANK the examples are ordered by subject
+		for (int i = 1; i < examples.size(); i++) {
+			assertTrue(examples.get(i - 1).getLeft().getURI().compareTo(examples.get(i).getLeft().getURI()) < 0);
+		}
+
+		generator.setMaxNrOfPositiveExamples(3);
+		assertEquals(new HashSet<Pair<Resource, Resource>>(examples.subList(0, 3)), generator.getPositiveExamples());
+
+		// a single query returns the examples in the same order
+		generator.setPageSize(PositiveExampleStream.SINGLE_QUERY);
+		assertEquals(new HashSet<Pair<Resource, Resource>>(examples.subList(0, 3)), generator.getPositiveExamples());
+		assertEquals(examples, generator.getListOfPositiveExamples());
+	}
+
+	@Test
+	public void testReservoirSampling() throws Exception {
+		generator.setSamplingMode(SamplingMode.RESERVOIR);
+		Set<Pair<Resource, Resource>> negativeExamples = generator.getNegativeExamples();
+		assertFalse(negativeExamples.isEmpty());
+		Set<Resource> directors = new HashSet<Resource>();
+		for (Pair<Resource, Resource> example : allExamples()) {
+			directors.add(example.getRight());
+		}
+		for (Pair<Resource, Resource> example : negativeExamples) {
+			assertFalse(model.contains(example.getLeft(), director, example.getRight()));
+			assertTrue(model.contains(example.getLeft(), RDF.type, model.createResource(ONTOLOGY + "Film")));
+			assertTrue(directors.contains(example.getRight()));
+		}
+
+		// the same seed draws the same sample
+		SimpleExampleGenerator other = createGenerator();
+		other.setSamplingMode(SamplingMode.RESERVOIR);
+		assertEquals(negativeExamples, other.getNegativeExamples());
+	}
+}
@@ -0,0 +1,133 @@
+package org.aksw.rex.test.uris;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aksw.rex.uris.AGDISTISPost;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs AGDISTISPost against a local stub of AGDISTIS which fails the first few
+ * requests with HTTP 503.
+ */
+public class AGDISTISPostTest {
+	private static final int ENTITIES = 5000;
+
+	private HttpServer server;
+	private AtomicInteger requests = new AtomicInteger();
+	private volatile int failures;
+	private volatile String body;
+
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/AGDISTIS", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				InputStream in = exchange.getRequestBody();
+				while (in.read() >= 0) {
+				}
+				in.close();
+				if (requests.incrementAndGet() <= failures) {
+					exchange.sendResponseHeaders(503, -1);
+					exchange.close();
+					return;
+				}
+				if (body != null) {
+					byte[] response = body.getBytes("UTF-8");
+					exchange.sendResponseHeaders(200, response.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(response);
+					out.close();
+					return;
+				}
+				// large enough to arrive in several packets
+				StringBuilder json = new StringBuilder("[");
+				for (int i = 0; i < ENTITIES; i++) {
+					json.append(i > 0 ? ",\n" : "").append("{\"namedEntity\":\"Entity " + i + "\",\"disambiguatedURL\":\"http://dbpedia.org/resource/Entity_" + i + "\"}");
+				}
+				json.append("]");
+				byte[] response = json.toString().getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, 0);
+				OutputStream out = exchange.getResponseBody();
+				out.write(response);
+				out.close();
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	private AGDISTISPost createPost() {
+		AGDISTISPost post = new AGDISTISPost("http://localhost:" + server.getAddress().getPort() + "/AGDISTIS");
+		post.setBackoffMillis(1);
+		post.setMaxRetries(2);
+		post.setFailureThreshold(2);
+		post.setOpenMillis(60000);
+		return post;
+	}
+
+	@Test
+	public void testRetryAndCompleteResponse() throws Exception {
+		failures = 2;
+		HashMap<String, String> result = createPost().runDisambiguation("<entity>Entity 0</entity>");
+		assertEquals(3, requests.get());
+		assertEquals(ENTITIES, result.size());
+		assertEquals("http://dbpedia.org/resource/Entity_4999", result.get("Entity 4999"));
+	}
+
+	@Test
+	public void testResponseWithoutArray() throws Exception {
+		body = "{\"error\":\"no entities\"}";
+		try {
+			createPost().runDisambiguation("<entity>Entity 0</entity>");
+			fail();
+		} catch (IOException e) {
+		}
+		assertEquals("An invalid response is not retried.", 1, requests.get());
+
+		body = "[\"Entity 0\"]";
+		try {
+			createPost().runDisambiguation("<entity>Entity 0</entity>");
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testCircuitBreaker() throws Exception {
+		failures = Integer.MAX_VALUE;
+		AGDISTISPost post = createPost();
+		for (int i = 0; i < 2; i++) {
+			try {
+				post.runDisambiguation("<entity>Entity 0</entity>");
+				fail();
+			} catch (IOException e) {
+			}
+		}
+		assertEquals("Each call is tried 3 times.", 6, requests.get());
+		try {
+			post.runDisambiguation("<entity>Entity 0</entity>");
+			fail();
+		} catch (IOException e) {
+		}
+		assertEquals("The open circuit does not send requests.", 6, requests.get());
+	}
+}
@@ -0,0 +1,153 @@
+package org.aksw.rex.test.uris;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.aksw.rex.results.ExtractionResult;
+import org.aksw.rex.results.ExtractionResultImpl;
+import org.aksw.rex.uris.AGDISTISPost;
+import org.aksw.rex.uris.URIGeneratorAGDISTIS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.stanford.nlp.util.Quadruple;
+
+/**
+ * Runs the URI generator against a local stub of AGDISTIS which maps every
+ * entity except "Unknown" to a DBpedia resource. Like AGDISTIS, the stub
+ * returns the entities unescaped, trimmed and with collapsed whitespace.
+ */
+public class URIGeneratorBatchTest {
+	private static final Pattern ENTITY = Pattern.compile("<entity>(.*?)</entity>");
+
+	private HttpServer server;
+	private AtomicInteger requests = new AtomicInteger();
+	private AtomicInteger entities = new AtomicInteger();
+	private File cacheDirectory;
+	private List<URIGeneratorAGDISTIS> generators = new ArrayList<URIGeneratorAGDISTIS>();
+
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/AGDISTIS", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				String body = read(exchange.getRequestBody());
+				String text = "";
+				for (String parameter : body.split("&")) {
+					if (parameter.startsWith("text=")) {
+						text = URLDecoder.decode(parameter.substring(5), "UTF-8");
+					}
+				}
+				StringBuilder json = new StringBuilder("[");
+				Matcher m = ENTITY.matcher(text);
+				while (m.find()) {
+					entities.incrementAndGet();
+					String entity = m.group(1).replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&").replaceAll("\\s+", " ").trim();
+					String url = entity.equals("Unknown") ? null : "\"http://dbpedia.org/resource/" + entity.replace(' ', '_').replace("<", "(").replace(">", ")") + "\"";
+					json.append(json.length() > 1 ? "," : "").append("{\"namedEntity\":\"").append(entity).append("\",\"disambiguatedURL\":").append(url).append("}");
+				}
+				json.append("]");
+				byte[] response = json.toString().getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, response.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(response);
+				out.close();
+			}
+		});
+		server.start();
+		cacheDirectory = File.createTempFile("agdistis", "");
+		cacheDirectory.delete();
+		cacheDirectory.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		// the cache keeps its database files open until it is closed
+		for (URIGeneratorAGDISTIS generator : generators) {
+			generator.close();
+		}
+		for (File file : cacheDirectory.listFiles()) {
+			file.delete();
+		}
+		cacheDirectory.delete();
+	}
+
+	@Test
+	public void testDeduplicatedBatchesAndCache() throws Exception {
+		Property p = ResourceFactory.createProperty("http://dbpedia.org/ontology/director");
+		Set<ExtractionResult> results = new HashSet<ExtractionResult>();
+		results.add(new ExtractionResultImpl("Top Gun", "Tony Scott", "http://example.org/1"));
+		results.add(new ExtractionResultImpl("Days of Thunder", "Tony Scott", "http://example.org/2"));
+		results.add(new ExtractionResultImpl("Crimson Tide", "Tony Scott", "http://example.org/3"));
+		results.add(new ExtractionResultImpl("Unknown", "Tony Scott", "http://example.org/4"));
+		results.add(new ExtractionResultImpl(" Loss  &  Gain", "Tony Scott", "http://example.org/5"));
+		results.add(new ExtractionResultImpl("Revenge <1990>", "Tony Scott", "http://example.org/6"));
+
+		AGDISTISPost post = new AGDISTISPost("http://localhost:" + server.getAddress().getPort() + "/AGDISTIS");
+		URIGeneratorAGDISTIS gen = createGenerator(post);
+		gen.setBatchSize(2);
+		Set<Quadruple<Node, Node, Node, String>> triples = gen.getTriples(results, p);
+
+		assertEquals(6, triples.size());
+		assertEquals("Each distinct surface form is sent once.", 7, entities.get());
+		assertEquals(4, requests.get());
+		Set<String> subjects = new HashSet<String>();
+		for (Quadruple<Node, Node, Node, String> t : triples) {
+			subjects.add(t.first().getURI());
+			assertEquals("http://dbpedia.org/resource/Tony_Scott", t.third().getURI());
+		}
+		assertTrue(subjects.contains("http://dbpedia.org/resource/Top_Gun"));
+		assertTrue(subjects.contains("http://aksw.org/resource/Unknown"));
+		assertTrue(subjects.contains("http://dbpedia.org/resource/Loss_&_Gain"));
+		assertTrue(subjects.contains("http://dbpedia.org/resource/Revenge_(1990)"));
+
+		// a new generator on the same cache only sends the unresolved surface form again
+		gen.close();
+		gen = createGenerator(post);
+		assertEquals(triples, gen.getTriples(results, p));
+		assertEquals(5, requests.get());
+		assertEquals(8, entities.get());
+	}
+
+	private URIGeneratorAGDISTIS createGenerator(AGDISTISPost post) {
+		URIGeneratorAGDISTIS generator = new URIGeneratorAGDISTIS(post, cacheDirectory.getPath());
+		generators.add(generator);
+		return generator;
+	}
+
+	private static String read(InputStream in) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			sb.append(new String(buffer, 0, n, "UTF-8"));
+		}
+		in.close();
+		return sb.toString();
+	}
+}
@@ -0,0 +1,66 @@
+package org.aksw.rex.test.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.aksw.rex.util.KnowledgeBaseBackend;
+import org.aksw.rex.util.SurfaceFormGenerator;
+import org.dllearner.kb.sparql.SparqlEndpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+/**
+ * Retrieves labels from a local knowledge base, which only accepts queries
+ * declaring their prefixes.
+ */
+public class SurfaceFormGeneratorTest {
+	private static final String RESOURCE = "http://example.org/resource/";
+	private static final String KB = "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+			+ "<" + RESOURCE + "Top_Gun> rdfs:label \"Top Gun (film)\"@en, \"Top Gun - Sie f\\u00fcrchten weder Tod noch Teufel\"@de .\n"
+			+ "<" + RESOURCE + "Tony_Scott> rdfs:label \"Tony Scott\"@en .\n";
+
+	private SparqlEndpoint endpoint;
+	private SurfaceFormGenerator generator;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(KnowledgeBaseBackend.BACKEND_PROPERTY, "memory");
+		Model model = ModelFactory.createDefaultModel();
+		model.read(new StringReader(KB), null, "TURTLE");
+		KnowledgeBaseBackend.setDataset(DatasetFactory.create(model));
+		endpoint = new SparqlEndpoint(new URL("http://localhost/sparql-surface-form-test"));
+		generator = new SurfaceFormGenerator(endpoint, null);
+	}
+
+	@After
+	public void tearDown() {
+		KnowledgeBaseBackend.setDataset(null);
+		System.clearProperty(KnowledgeBaseBackend.BACKEND_PROPERTY);
+	}
+
+	@Test
+	public void testSingleResource() {
+		assertEquals(Collections.singleton("Top Gun"), generator.getSurfaceForms(endpoint, RESOURCE + "Top_Gun"));
+		assertEquals(Collections.singleton("Ridley Scott"), generator.getSurfaceForms(endpoint, RESOURCE + "Ridley_Scott"));
+	}
+
+	@Test
+	public void testBatch() {
+		Map<String, Set<String>> surfaceForms = generator.getSurfaceForms(endpoint, Arrays.asList(RESOURCE + "Top_Gun", RESOURCE + "Tony_Scott", RESOURCE + "Ridley_Scott"));
+		assertEquals(3, surfaceForms.size());
+		assertEquals(Collections.singleton("Top Gun"), surfaceForms.get(RESOURCE + "Top_Gun"));
+		assertEquals(Collections.singleton("Tony Scott"), surfaceForms.get(RESOURCE + "Tony_Scott"));
+		assertEquals(Collections.singleton("Ridley Scott"), surfaceForms.get(RESOURCE + "Ridley_Scott"));
+	}
+}
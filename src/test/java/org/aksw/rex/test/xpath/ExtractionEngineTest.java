@@ -0,0 +1,92 @@
+package org.aksw.rex.test.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.crawler.DOMCache;
+import org.aksw.rex.results.ExtractionResult;
+import org.aksw.rex.results.ExtractionResultImpl;
+import org.aksw.rex.util.Pair;
+import org.aksw.rex.xpath.ExtractionEngine;
+import org.aksw.rex.xpath.ExtractionEngine.ResultSink;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rules.xpath.XPathRule;
+
+import com.google.common.io.Files;
+
+public class ExtractionEngineTest {
+	private static File directory;
+	private static CrawlIndex index;
+
+	@BeforeClass
+	public static void init() {
+		directory = Files.createTempDir();
+		index = TestPages.createIndex(directory);
+	}
+
+	@AfterClass
+	public static void finish() {
+		index.close();
+		TestPages.delete(directory);
+	}
+
+	/**
+	 * 
+	 * @return two rules extracting the same title and director from each page
+	 */
+	private List<Pair<XPathRule, XPathRule>> getRules() {
+		List<Pair<XPathRule, XPathRule>> rules = new ArrayList<Pair<XPathRule, XPathRule>>();
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("//h1"), new XPathRule("//td/a")));
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("//div/h1"), new XPathRule("//a")));
+		return rules;
+	}
+
+	@Test
+	public void testExtract() {
+		long misses = DOMCache.getInstance().stats().missCount();
+		Set<ExtractionResult> results = new ExtractionEngine(index, 3, 2).extract(getRules(), TestPages.DOMAIN);
+		assertEquals("One result per page of the domain.", TestPages.MOVIES.length, results.size());
+		assertEquals("The pages are not cached.", misses, DOMCache.getInstance().stats().missCount());
+		for (int i = 0; i < TestPages.MOVIES.length; i++) {
+			assertTrue(results.contains(new ExtractionResultImpl(TestPages.MOVIES[i][0], TestPages.MOVIES[i][1], TestPages.DOMAIN + "movie/" + i)));
+		}
+	}
+
+	@Test
+	public void testSinkReceivesDistinctResults() {
+		final AtomicInteger accepted = new AtomicInteger();
+		final Set<ExtractionResult> distinct = Collections.synchronizedSet(new HashSet<ExtractionResult>());
+		ExtractionEngine engine = new ExtractionEngine(index, 4, 1);
+		long pages = engine.extract(getRules(), TestPages.DOMAIN, new ResultSink() {
+			@Override
+			public void accept(ExtractionResult result) {
+				accepted.incrementAndGet();
+				distinct.add(result);
+			}
+		});
+		assertEquals(TestPages.MOVIES.length, pages);
+		assertEquals(TestPages.MOVIES.length, accepted.get());
+		assertEquals(accepted.get(), distinct.size());
+	}
+
+	@Test
+	public void testQueueSink() {
+		BlockingQueue<ExtractionResult> queue = new ArrayBlockingQueue<ExtractionResult>(100);
+		new ExtractionEngine(index, 2).extract(getRules(), TestPages.DOMAIN, ExtractionEngine.queueSink(queue));
+		assertEquals(TestPages.MOVIES.length, queue.size());
+	}
+}
@@ -0,0 +1,85 @@
+package org.aksw.rex.test.xpath;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.util.KnowledgeBaseBackend;
+
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+/**
+ * Small crawl index of movie pages for offline tests. The knowledge base is
+ * switched to an empty local dataset, i.e. the surface forms of resources are
+ * derived from their URIs.
+ */
+public class TestPages {
+	public static final String DOMAIN = "http://movies.example.org/";
+	public static final String[][] MOVIES = { { "Top Gun", "Tony Scott" }, { "Crimson Tide", "Tony Scott" }, { "Alien", "Ridley Scott" },
+			{ "Gladiator", "Ridley Scott" }, { "Jaws", "Steven Spielberg" }, { "Duel", "Steven Spielberg" }, { "Heat", "Michael Mann" },
+			{ "Collateral", "Michael Mann" } };
+
+	private TestPages() {
+	}
+
+	/**
+	 * switches the knowledge base to an empty local dataset
+	 */
+	public static void useLocalKnowledgeBase() {
+		System.setProperty(KnowledgeBaseBackend.BACKEND_PROPERTY, "memory");
+		KnowledgeBaseBackend.setDataset(DatasetFactory.create(ModelFactory.createDefaultModel()));
+	}
+
+	/**
+	 * 
+	 * @param directory
+	 * @return index with one page per movie under {@link #DOMAIN} and one page
+	 *         of another domain
+	 */
+	public static CrawlIndex createIndex(File directory) {
+		CrawlIndex index = new CrawlIndex(directory.getPath(), 0);
+		for (int i = 0; i < MOVIES.length; i++) {
+			index.addDocumentToIndex(DOMAIN + "movie/" + i, moviePage(MOVIES[i][0], MOVIES[i][1]));
+		}
+		index.addDocumentToIndex("http://other.example.org/news", "<html><body><p>Top Gun</p><p>Tony Scott</p></body></html>");
+		try {
+			index.commit();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		index.refresh();
+		return index;
+	}
+
+	/**
+	 * 
+	 * @param title
+	 * @param director
+	 * @return HTML of a movie page, the title is in the header, the director
+	 *         in the second cell of the table
+	 */
+	public static String moviePage(String title, String director) {
+		return "<html><body><div><h1>" + title + "</h1></div><div><p>" + title + " is a movie.</p></div>" + "<table><tr><td>Director</td><td><a href=\"#\">"
+				+ director + "</a></td></tr><tr><td>Year</td><td>1990</td></tr></table></body></html>";
+	}
+
+	public static String toURI(String name) {
+		return "http://dbpedia.org/resource/" + name.replace(' ', '_');
+	}
+
+	/**
+	 * deletes the directory and its files
+	 * 
+	 * @param directory
+	 */
+	public static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+}
@@ -88,6 +88,29 @@ public class XPathExtractorTest {
 		assertTrue("Three is the correct number of Xpaths", paths.size() == 3);
 	}
 	
+	@Test
+	public void testXPathExtractorSubstringAndQuotes() throws Exception {
+		// @formatter:off
+		String html = "<html><body>" + 
+		"<p>Tom is great</p>" + 
+		"<div>" + 
+		"     <b>Tom isn't that bad</b>" + 
+		"     <p>Tommy boy is not nice instead.</p>"+ 
+		"     <div>"+
+		"         <p> Another Tom hides here</p>  " +
+		"     </div>"+
+		"</div>" +
+		"</body></html>";
+		// @formatter:on
+		List<String> paths = ex.extractXPaths("Tom isn't that bad", html, true);
+		assertTrue("Queries with apostrophes are supported", paths.size() == 1);
+		assertTrue("/html[1]/body[1]/div[1]/b[1]".equals(paths.get(0)));
+
+		paths = ex.extractXPaths("Tom", html, false);
+		assertTrue("Four elements contain Tom", paths.size() == 4);
+		assertTrue("/html[1]/body[1]/div[1]/div[1]/p[1]".equals(paths.get(3)));
+	}
+
 	@Test
 	public void testXPathsForTomCruise() throws Exception {
 		Map<String, List<Pair<XPathRule, XPathRule>>> data = ex.extractPathsFromCrawlIndexWithURL("Tom Cruise", "Mission Impossible");
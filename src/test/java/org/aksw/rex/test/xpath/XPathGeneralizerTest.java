@@ -3,8 +3,11 @@
  */
 package org.aksw.rex.test.xpath;
 
+import static org.junit.Assert.assertEquals;
+
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.xpath.XPath;
@@ -17,6 +20,7 @@ import org.aksw.rex.util.Pair;
 import org.aksw.rex.util.SurfaceFormGenerator;
 import org.aksw.rex.xpath.XPathExtractor;
 import org.aksw.rex.xpath.XPathGeneralizer;
+import org.aksw.rex.xpath.XPathRegistry;
 import org.dllearner.kb.sparql.SparqlEndpoint;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -88,6 +92,63 @@ public class XPathGeneralizerTest {
 		
 	}
 	
+	/**
+	 * Test method for {@link org.aksw.rex.xpath.XPathGeneralizer#generalizeXPathExpressions(java.lang.String, java.lang.String)}
+	 * without network access.
+	 */
+	@Test
+	public void testGeneralizeXPathExpressionsOffline() throws Exception {
+		// same length: positions are dropped, different elements become *
+		assertEquals("/html[1]/body[1]/div/span[1]", XPathGeneralizer.generalizeXPathExpressions("/html[1]/body[1]/div[2]/span[1]", "/html[1]/body[1]/div[3]/span[1]"));
+		assertEquals("/html[1]/body[1]/*/span[1]", XPathGeneralizer.generalizeXPathExpressions("/html[1]/body[1]/div[2]/span[1]", "/html[1]/body[1]/p[1]/span[1]"));
+		// different length: unaligned steps become //
+		assertEquals("/html[1]/body[1]/div[1]//span[1]", XPathGeneralizer.generalizeXPathExpressions("/html[1]/body[1]/div[1]/span[1]", "/html[1]/body[1]/div[1]/div[2]/span[1]"));
+		assertEquals("/html[1]/body[1]//table[1]/tr/td[2]", XPathGeneralizer.generalizeXPathExpressions("/html[1]/body[1]/div[1]/table[1]/tr[2]/td[2]", "/html[1]/body[1]/table[1]/tr[5]/td[2]"));
+
+		// the generalized expression matches the elements of both expressions
+		String html = "<html><body><div><span>a</span><div></div><div><span>b</span></div></div></body></html>";
+		NodeList nodeList = XPathRegistry.evaluate("/html[1]/body[1]/div[1]//span[1]", org.aksw.rex.crawler.DOMBuilder.jsoup2DOM(Jsoup.parse(html)));
+		assertEquals(2, nodeList.getLength());
+	}
+
+	/**
+	 * Rules with paths which can not be generalized are skipped instead of
+	 * aborting the generalization of all rules.
+	 */
+	@Test
+	public void testGenerateXPathExtractionRulesSkipsUnparseablePaths() {
+		List<Pair<XPathRule, XPathRule>> rules = Lists.newArrayList();
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("/html[1]/body[1]/div[2]/span[1]"), new XPathRule("/html[1]/body[1]/p[1]")));
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("/html[1]/body[1]/div[@class='x']/span[1]"), new XPathRule("/html[1]/body[1]/p[2]")));
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("/html[1]/body[1]/div[3]/span[1]"), new XPathRule("/html[1]/body[1]/p[3]")));
+
+		Map<Pair<XPathRule, XPathRule>, Integer> generalized = XPathGeneralizer.generateXPathExtractionRulesWithSupport(rules);
+		assertEquals(1, generalized.size());
+		Pair<XPathRule, XPathRule> rule = generalized.keySet().iterator().next();
+		assertEquals("/html[1]/body[1]/div/span[1]", rule.getLeft().toString());
+		assertEquals("/html[1]/body[1]/p", rule.getRight().toString());
+		assertEquals(Integer.valueOf(2), generalized.get(rule));
+	}
+
+	/**
+	 * Rules whose paths differ by additional elements are clustered and
+	 * generalized together, other rules are not.
+	 */
+	@Test
+	public void testGenerateXPathExtractionRulesMergesAlignedPaths() {
+		List<Pair<XPathRule, XPathRule>> rules = Lists.newArrayList();
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("/html[1]/body[1]/div[1]/span[1]"), new XPathRule("/html[1]/body[1]/p[1]")));
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("/html[1]/body[1]/table[1]/tr[1]"), new XPathRule("/html[1]/body[1]/p[1]")));
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("/html[1]/body[1]/div[1]/div[2]/span[1]"), new XPathRule("/html[1]/body[1]/p[1]")));
+
+		Map<Pair<XPathRule, XPathRule>, Integer> generalized = XPathGeneralizer.generateXPathExtractionRulesWithSupport(rules);
+		assertEquals(2, generalized.size());
+		Pair<XPathRule, XPathRule> rule = generalized.keySet().iterator().next();
+		assertEquals("/html[1]/body[1]/div[1]//span[1]", rule.getLeft().toString());
+		assertEquals("/html[1]/body[1]/p[1]", rule.getRight().toString());
+		assertEquals(Integer.valueOf(2), generalized.get(rule));
+	}
+
 	/**
 	 * Test method for {@link org.aksw.rex.xpath.XPathGeneralizer#generalizeXPathExpressions(java.lang.String, java.lang.String)}.
 	 */
@@ -109,7 +170,7 @@ public class XPathGeneralizerTest {
 		ResultSet rs = qef.createQueryExecution(query).execSelect();
 		QuerySolution qs;
 		
-		SurfaceFormGenerator surfaceFormGenerator = new SurfaceFormGenerator(endpoint, "sparql-cache");
+		SurfaceFormGenerator surfaceFormGenerator = SurfaceFormGenerator.getInstance(endpoint, "sparql-cache");
 		
 		//Extract pairs of XPath expressions
 		List<Pair<XPathRule, XPathRule>> extractionRules = Lists.newArrayList();
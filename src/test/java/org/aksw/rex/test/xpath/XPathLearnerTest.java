@@ -0,0 +1,111 @@
+package org.aksw.rex.test.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.util.Pair;
+import org.aksw.rex.xpath.XPathExtractor;
+import org.aksw.rex.xpath.XPathLearnerImpl;
+import org.dllearner.kb.sparql.SparqlEndpoint;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rules.xpath.XPathRule;
+
+import com.google.common.io.Files;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+
+public class XPathLearnerTest {
+	private static File directory;
+	private static CrawlIndex index;
+	private static SparqlEndpoint endpoint;
+
+	@BeforeClass
+	public static void init() throws Exception {
+		TestPages.useLocalKnowledgeBase();
+		directory = Files.createTempDir();
+		index = TestPages.createIndex(directory);
+		endpoint = new SparqlEndpoint(new URL("http://localhost/sparql-xpath-learner-test"));
+	}
+
+	@AfterClass
+	public static void finish() {
+		index.close();
+		TestPages.delete(directory);
+	}
+
+	@Test
+	public void testParallelModeEqualsSequentialMode() throws Exception {
+		Set<Pair<Resource, Resource>> posExamples = new HashSet<Pair<Resource, Resource>>();
+		for (String[] movie : TestPages.MOVIES) {
+			posExamples.add(new Pair<Resource, Resource>(ResourceFactory.createResource(TestPages.toURI(movie[0])), ResourceFactory.createResource(TestPages.toURI(movie[1]))));
+		}
+		URL domain = new URL(TestPages.DOMAIN);
+
+		XPathLearnerImpl sequential = new XPathLearnerImpl(new XPathExtractor(index), endpoint);
+		List<String> sequentialRules = toStrings(sequential.getXPathExpressions(posExamples, domain));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			XPathLearnerImpl parallel = new XPathLearnerImpl(new XPathExtractor(index), endpoint);
+			parallel.setExecutor(executor, 2);
+			for (int i = 0; i < 3; i++) {
+				assertEquals(sequentialRules, toStrings(parallel.getXPathExpressions(posExamples, domain)));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertFalse(sequentialRules.isEmpty());
+	}
+
+	@Test
+	public void testXPathsOfPairDoNotDependOnOtherPairs() throws Exception {
+		File pagesDirectory = Files.createTempDir();
+		CrawlIndex pages = new CrawlIndex(pagesDirectory.getPath(), 0);
+		try {
+			// the second page contains both pairs, the pages of the pairs are found in different orders
+			pages.addDocumentToIndex(TestPages.DOMAIN + "a", "<html><body><p>Top Gun</p><b>Tony Scott</b></body></html>");
+			pages.addDocumentToIndex(TestPages.DOMAIN + "b", "<html><body><div><h1>Alien</h1><i>Ridley Scott</i></div><h2>Top Gun</h2><h3>Tony Scott</h3></body></html>");
+			pages.addDocumentToIndex(TestPages.DOMAIN + "c", "<html><body><h4>Alien</h4><h5>Ridley Scott</h5></body></html>");
+			pages.commit();
+			pages.refresh();
+
+			XPathExtractor extractor = new XPathExtractor(pages);
+			Pair<String, String> topGun = new Pair<String, String>("Top Gun", "Tony Scott");
+			Pair<String, String> alien = new Pair<String, String>("Alien", "Ridley Scott");
+			List<Pair<String, String>> pairs = new ArrayList<Pair<String, String>>();
+			pairs.add(alien);
+			pairs.add(topGun);
+			Map<Pair<String, String>, List<Pair<XPathRule, XPathRule>>> batch = extractor.extractPathsFromCrawlIndex(pairs, TestPages.DOMAIN, true);
+			assertEquals(2, batch.get(topGun).size());
+			assertEquals(2, batch.get(alien).size());
+			assertEquals(toStrings(extractor.extractPathsFromCrawlIndex(Collections.singletonList(topGun), TestPages.DOMAIN, true).get(topGun)), toStrings(batch.get(topGun)));
+			assertEquals(toStrings(extractor.extractPathsFromCrawlIndex(Collections.singletonList(alien), TestPages.DOMAIN, true).get(alien)), toStrings(batch.get(alien)));
+		} finally {
+			pages.close();
+			TestPages.delete(pagesDirectory);
+		}
+	}
+
+	private List<String> toStrings(List<Pair<XPathRule, XPathRule>> rules) {
+		List<String> strings = new ArrayList<String>();
+		for (Pair<XPathRule, XPathRule> rule : rules) {
+			strings.add(rule.getLeft() + " " + rule.getRight());
+		}
+		return strings;
+	}
+}
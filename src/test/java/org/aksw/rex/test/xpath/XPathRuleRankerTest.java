@@ -0,0 +1,99 @@
+package org.aksw.rex.test.xpath;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.aksw.rex.crawler.CrawlIndex;
+import org.aksw.rex.util.Pair;
+import org.aksw.rex.util.SurfaceFormGenerator;
+import org.aksw.rex.xpath.XPathRuleRanker;
+import org.dllearner.kb.sparql.SparqlEndpoint;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rules.xpath.XPathRule;
+
+import com.google.common.io.Files;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+
+public class XPathRuleRankerTest {
+	private static File directory;
+	private static CrawlIndex index;
+	private static SparqlEndpoint endpoint;
+
+	@BeforeClass
+	public static void init() throws Exception {
+		TestPages.useLocalKnowledgeBase();
+		directory = Files.createTempDir();
+		index = TestPages.createIndex(directory);
+		endpoint = new SparqlEndpoint(new URL("http://localhost/sparql-xpath-rule-ranker-test"));
+	}
+
+	@AfterClass
+	public static void finish() {
+		index.close();
+		TestPages.delete(directory);
+	}
+
+	private List<Pair<XPathRule, XPathRule>> getRules() {
+		List<Pair<XPathRule, XPathRule>> rules = new ArrayList<Pair<XPathRule, XPathRule>>();
+		// extracts nothing
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("//h2"), new XPathRule("//td/a")));
+		// extracts the wrong objects
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("//h1"), new XPathRule("//td[1]")));
+		rules.add(new Pair<XPathRule, XPathRule>(new XPathRule("//h1"), new XPathRule("//td/a")));
+		return rules;
+	}
+
+	private Map<String, Double> score(List<Pair<Resource, Resource>> examples) throws Exception {
+		XPathRuleRanker ranker = new XPathRuleRanker(index, SurfaceFormGenerator.getInstance(endpoint, "sparql-cache"), endpoint);
+		Map<String, Double> scores = new LinkedHashMap<String, Double>();
+		for (Entry<Pair<XPathRule, XPathRule>, Double> entry : ranker.score(getRules(), new LinkedHashSet<Pair<Resource, Resource>>(examples), new URL(TestPages.DOMAIN), 3).entrySet()) {
+			scores.put(entry.getKey().getLeft() + " " + entry.getKey().getRight(), entry.getValue());
+		}
+		return scores;
+	}
+
+	@Test
+	public void testRankingIsReproducible() throws Exception {
+		List<Pair<Resource, Resource>> examples = new ArrayList<Pair<Resource, Resource>>();
+		for (String[] movie : TestPages.MOVIES) {
+			examples.add(new Pair<Resource, Resource>(ResourceFactory.createResource(TestPages.toURI(movie[0])), ResourceFactory.createResource(TestPages.toURI(movie[1]))));
+		}
+		Map<String, Double> scores = score(examples);
+		Collections.reverse(examples);
+		Map<String, Double> scoresOfReversedExamples = score(examples);
+		assertEquals(new ArrayList<String>(scores.keySet()), new ArrayList<String>(scoresOfReversedExamples.keySet()));
+		assertEquals(scores, scoresOfReversedExamples);
+
+		// 8 pages, 2 held-out pages: support 6 of 6, smoothed precision (2 + 1) / (2 + 2)
+		Set<String> ranking = scores.keySet();
+		assertEquals("//h1 //td/a", ranking.iterator().next());
+		assertEquals(0.75, scores.get("//h1 //td/a"), 0.0001);
+		assertEquals(0, scores.get("//h1 //td[1]"), 0.0001);
+	}
+
+	@Test
+	public void testRank() throws Exception {
+		XPathRuleRanker ranker = new XPathRuleRanker(index, SurfaceFormGenerator.getInstance(endpoint, "sparql-cache"), endpoint);
+		Set<Pair<Resource, Resource>> examples = new LinkedHashSet<Pair<Resource, Resource>>();
+		for (String[] movie : TestPages.MOVIES) {
+			examples.add(new Pair<Resource, Resource>(ResourceFactory.createResource(TestPages.toURI(movie[0])), ResourceFactory.createResource(TestPages.toURI(movie[1]))));
+		}
+		List<Pair<XPathRule, XPathRule>> top = ranker.rank(getRules(), examples, new URL(TestPages.DOMAIN), 1);
+		assertEquals(1, top.size());
+		assertEquals("//td/a", top.get(0).getRight().toString());
+	}
+}